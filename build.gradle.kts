@@ -55,3 +55,15 @@ dependencies {
 tasks.withType<Test> {
     useJUnitPlatform()
 }
+
+// ./gradlew priceBenchmark -Piterations=3000
+tasks.register<JavaExec>("priceBenchmark") {
+    group = "verification"
+    description = "Compares allocation of BigDecimal and minor-unit price handling on sample-products.json"
+    classpath = sourceSets["test"].runtimeClasspath
+    mainClass = "com.respiroc.gregfullstack.repository.PriceAllocationBenchmark"
+    args = listOf(
+        "--sample=" + file("sample-products.json").absolutePath,
+        "--iterations=" + (findProperty("iterations") ?: "2000")
+    )
+}
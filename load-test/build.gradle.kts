@@ -0,0 +1,74 @@
+plugins {
+    java
+    application
+}
+
+group = "com.respiroc"
+version = "0.0.1-SNAPSHOT"
+description = "greg-fullstack load test harness"
+
+java {
+    toolchain {
+        languageVersion = JavaLanguageVersion.of(25)
+    }
+}
+
+repositories {
+    mavenCentral()
+}
+
+dependencies {
+    implementation("com.fasterxml.jackson.core:jackson-databind:2.19.2")
+    implementation("org.hdrhistogram:HdrHistogram:2.2.2")
+    implementation("org.postgresql:postgresql:42.7.7")
+
+    testImplementation("org.junit.jupiter:junit-jupiter:5.12.2")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+}
+
+tasks.withType<Test> {
+    useJUnitPlatform()
+}
+
+application {
+    mainClass = "com.respiroc.gregfullstack.loadtest.LoadTestRunner"
+}
+
+// ./gradlew :load-test:loadTest -PbaseUrl=http://localhost:8080 -Pduration=60s -Pusers=32
+tasks.register<JavaExec>("loadTest") {
+    group = "verification"
+    description = "Drives the HTMX endpoints of a locally running app and writes build/load-test/summary.json"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass = application.mainClass
+    args = listOf(
+        "--base-url=" + (findProperty("baseUrl") ?: "http://localhost:8080"),
+        "--duration=" + (findProperty("duration") ?: "60s"),
+        "--warmup=" + (findProperty("warmup") ?: "10s"),
+        "--users=" + (findProperty("users") ?: "16"),
+        "--feed-port=" + (findProperty("feedPort") ?: "18089"),
+        "--products=" + (findProperty("products") ?: "50"),
+        "--sample=" + rootProject.file("sample-products.json").absolutePath,
+        "--output=" + layout.buildDirectory.file("load-test/summary.json").get().asFile.absolutePath,
+        "--label=" + (findProperty("label") ?: System.getenv("GIT_COMMIT") ?: "local")
+    ) + (findProperty("replay")?.let { listOf("--replay=" + file(it).absolutePath) } ?: emptyList())
+}
+
+// ./gradlew :load-test:generateCatalog -Pproducts=1000000 -Ptruncate=true
+tasks.register<JavaExec>("generateCatalog") {
+    group = "application"
+    description = "Generates a synthetic catalog from sample-products.json and COPYs it into the products table"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass = "com.respiroc.gregfullstack.loadtest.CatalogGenerator"
+    args = listOf(
+        "--products=" + (findProperty("products") ?: "100000"),
+        "--jdbc-url=" + (findProperty("jdbcUrl") ?: "jdbc:postgresql://localhost:5432/greg_fullstack"),
+        "--user=" + (findProperty("dbUser") ?: "postgres"),
+        "--password=" + (findProperty("dbPassword") ?: "password"),
+        "--seed=" + (findProperty("seed") ?: "42"),
+        "--epoch=" + (findProperty("epoch") ?: "2025-01-01T00:00:00Z"),
+        "--store=" + (findProperty("store") ?: "generated"),
+        "--max-variants=" + (findProperty("maxVariants") ?: "60"),
+        "--truncate=" + (findProperty("truncate") ?: "false"),
+        "--sample=" + rootProject.file("sample-products.json").absolutePath
+    )
+}
@@ -0,0 +1,362 @@
+package com.respiroc.gregfullstack.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Expands {@code sample-products.json} into a synthetic catalog of arbitrary size and streams it into
+ * the {@code products} table with {@code COPY ... FROM STDIN}.
+ *
+ * <p>Title words and product types follow a Zipf distribution ranked by their frequency in the sample.
+ * Variant counts are resampled from the sample, and prices are drawn from a log-normal distribution
+ * fitted to the sample prices, then snapped to retail price points. Timestamps are spread over the two
+ * years before {@code --epoch} rather than before the current time, so the same {@code --seed} and
+ * {@code --epoch} always produce the same catalog.
+ *
+ * <p>Rows go to {@code --store} (default {@code generated}) and are stamped with that store's latest
+ * completed sync generation. Retention only runs for stores that have completed a sync, so a generated
+ * store keeps every row whatever the retention policy.
+ *
+ * <p>Shopify ids of a load continue after the highest generated id already in the store, including
+ * purged ones, so repeated loads without {@code --truncate} add to the store instead of failing on its
+ * unique {@code (store_id, shopify_product_id)} key.
+ */
+public final class CatalogGenerator {
+
+    private static final Pattern WORD = Pattern.compile("[\\p{L}]{2,}");
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ssXXX");
+    private static final long SHOPIFY_ID_BASE = 10_000_000_000_000L;
+    private static final int FLUSH_BYTES = 1 << 20;
+    private static final List<String> EXTRA_WORDS = List.of(
+            "Soft", "Everyday", "Studio", "Performance", "Ribbed", "Cropped", "Oversized", "Thermal", "Breathable",
+            "Lightweight", "Classic", "Essential", "Active", "Flex", "Cloud", "Luxe", "Organic", "Recycled", "Quilted",
+            "Mesh", "Pleated", "Cargo", "Wide", "Slim", "Boxy", "Vintage", "Stretch", "Waffle", "Fleece", "Knit");
+
+    private final SplittableRandom random;
+    private final ZipfSampler<String> words;
+    private final ZipfSampler<String> productTypes;
+    private final List<String> colors;
+    private final List<String> sizes;
+    private final int[] variantCounts;
+    private final double logPriceMean;
+    private final double logPriceStdDev;
+    private final String storeId;
+    private final long epochMillis;
+
+    CatalogGenerator(JsonNode sampleProducts, long seed, int maxVariants, double exponent,
+                     String storeId, Instant epoch) {
+        this.random = new SplittableRandom(seed);
+        this.storeId = storeId;
+        this.epochMillis = epoch.toEpochMilli();
+
+        List<String> sampleWords = new ArrayList<>();
+        List<String> sampleTypes = new ArrayList<>();
+        LinkedHashSet<String> sampleColors = new LinkedHashSet<>();
+        LinkedHashSet<String> sampleSizes = new LinkedHashSet<>();
+        List<Integer> counts = new ArrayList<>();
+        List<Double> logPrices = new ArrayList<>();
+
+        for (JsonNode product : sampleProducts) {
+            Matcher matcher = WORD.matcher(product.path("title").asText());
+            while (matcher.find()) {
+                sampleWords.add(matcher.group());
+            }
+            String type = product.path("product_type").asText("");
+            if (!type.isBlank()) {
+                sampleTypes.add(type);
+            }
+
+            JsonNode variants = product.path("variants");
+            counts.add(Math.max(1, Math.min(variants.size(), maxVariants)));
+            for (JsonNode variant : variants) {
+                addOption(sampleColors, variant.path("option1"));
+                addOption(sampleSizes, variant.path("option2"));
+                double price = variant.path("price").asDouble(0);
+                if (price > 0) {
+                    logPrices.add(Math.log(price));
+                }
+            }
+        }
+
+        List<String> vocabulary = new ArrayList<>(rankByFrequency(sampleWords));
+        EXTRA_WORDS.stream().filter(word -> !vocabulary.contains(word)).forEach(vocabulary::add);
+
+        this.words = new ZipfSampler<>(vocabulary, exponent);
+        this.productTypes = new ZipfSampler<>(rankByFrequency(sampleTypes), exponent);
+        this.colors = sampleColors.isEmpty() ? List.of("Black") : List.copyOf(sampleColors);
+        this.sizes = sampleSizes.isEmpty() ? List.of("One Size") : List.copyOf(sampleSizes);
+        this.variantCounts = counts.stream().mapToInt(Integer::intValue).toArray();
+
+        double mean = logPrices.stream().mapToDouble(Double::doubleValue).average().orElse(Math.log(500));
+        double variance = logPrices.stream().mapToDouble(value -> (value - mean) * (value - mean)).average().orElse(0.25);
+        this.logPriceMean = mean;
+        this.logPriceStdDev = Math.sqrt(variance);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = LoadTestConfig.parseArgs(args);
+        long products = Long.parseLong(options.getOrDefault("products", "100000"));
+        String jdbcUrl = options.getOrDefault("jdbc-url", "jdbc:postgresql://localhost:5432/greg_fullstack");
+        Path sample = Path.of(options.getOrDefault("sample", "sample-products.json"));
+        boolean truncate = Boolean.parseBoolean(options.getOrDefault("truncate", "false"));
+
+        JsonNode sampleProducts = new ObjectMapper().readTree(sample.toFile()).path("products");
+        if (!sampleProducts.isArray() || sampleProducts.isEmpty()) {
+            throw new IllegalArgumentException("No products found in " + sample);
+        }
+
+        CatalogGenerator generator = new CatalogGenerator(
+                sampleProducts,
+                Long.parseLong(options.getOrDefault("seed", "42")),
+                Integer.parseInt(options.getOrDefault("max-variants", "60")),
+                Double.parseDouble(options.getOrDefault("zipf-exponent", "1.07")),
+                options.getOrDefault("store", "generated"),
+                Instant.parse(options.getOrDefault("epoch", "2025-01-01T00:00:00Z")));
+
+        try (Connection connection = DriverManager.getConnection(jdbcUrl,
+                options.getOrDefault("user", "postgres"), options.getOrDefault("password", "password"))) {
+            generator.load(connection, products, truncate);
+        }
+    }
+
+    private void load(Connection connection, long products, boolean truncate) throws SQLException {
+        long started = System.nanoTime();
+        connection.setAutoCommit(false);
+
+        if (truncate) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("TRUNCATE products RESTART IDENTITY");
+            }
+        }
+        long generation = latestCompletedGeneration(connection);
+        long firstIndex = nextFreeIndex(connection);
+        if (firstIndex > 0) {
+            log("Store %s already holds generated products; continuing at Shopify id %d", storeId, SHOPIFY_ID_BASE + firstIndex);
+        }
+
+        // FREEZE skips the later anti-wraparound rewrite, but is only allowed right after a TRUNCATE
+        String sql = "COPY products (store_id, shopify_product_id, title, handle, price, price_minor_units, product_type, variants, "
+                + "created_at, updated_at, last_seen_generation) "
+                + "FROM STDIN WITH (FORMAT text" + (truncate ? ", FREEZE" : "") + ")";
+        CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(sql);
+
+        StringBuilder rows = new StringBuilder(FLUSH_BYTES + 4096);
+        long reportEvery = Math.max(products / 10, 1);
+        try {
+            for (long i = 0; i < products; i++) {
+                appendRow(rows, firstIndex + i, generation);
+                if (rows.length() >= FLUSH_BYTES) {
+                    flush(copyIn, rows);
+                }
+                if ((i + 1) % reportEvery == 0) {
+                    log("%,d / %,d products", i + 1, products);
+                }
+            }
+            flush(copyIn, rows);
+            copyIn.endCopy();
+        } catch (SQLException | RuntimeException e) {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+            connection.rollback();
+            throw e;
+        }
+        connection.commit();
+
+        connection.setAutoCommit(true);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE products");
+        }
+
+        long seconds = Math.max(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started), 1);
+        log("Loaded %,d products into store %s in %d s (%,d rows/s)", products, storeId, seconds, products / seconds);
+    }
+
+    /** The generation products added outside a sync are stamped with, as ProductRepository does. */
+    private long latestCompletedGeneration(Connection connection) throws SQLException {
+        String sql = "SELECT COALESCE(MAX(generation), 0) FROM sync_runs WHERE store_id = ? AND completed_at IS NOT NULL";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, storeId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getLong(1);
+            }
+        }
+    }
+
+    /** Index after the highest generated Shopify id of the store, in products or their tombstones. */
+    private long nextFreeIndex(Connection connection) throws SQLException {
+        String sql = """
+            SELECT GREATEST(
+                (SELECT MAX(shopify_product_id) FROM products WHERE store_id = ? AND shopify_product_id >= ?),
+                (SELECT MAX(shopify_product_id) FROM product_tombstones WHERE store_id = ? AND shopify_product_id >= ?))
+            """;
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, storeId);
+            statement.setLong(2, SHOPIFY_ID_BASE);
+            statement.setString(3, storeId);
+            statement.setLong(4, SHOPIFY_ID_BASE);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                long highest = resultSet.getLong(1);
+                return resultSet.wasNull() ? 0 : highest - SHOPIFY_ID_BASE + 1;
+            }
+        }
+    }
+
+    void appendRow(StringBuilder row, long index, long generation) {
+        int titleWords = 2 + random.nextInt(2);
+        StringBuilder title = new StringBuilder();
+        for (int w = 0; w < titleWords; w++) {
+            title.append(words.sample(random)).append(' ');
+        }
+        String productType = random.nextInt(10) == 0 ? null : productTypes.sample(random);
+        title.append(productType != null ? productType : words.sample(random));
+
+        String handle = title.toString().toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", "-") + "-" + index;
+        long basePrice = drawPrice();
+        long createdAt = epochMillis - (long) (random.nextDouble() * TimeUnit.DAYS.toMillis(730));
+        long updatedAt = createdAt + (long) (random.nextDouble() * (epochMillis - createdAt));
+
+        StringBuilder variants = new StringBuilder("[");
+        int variantCount = variantCounts[random.nextInt(variantCounts.length)];
+        long minPrice = Long.MAX_VALUE;
+        for (int v = 0; v < variantCount; v++) {
+            long price = random.nextInt(5) == 0 ? nextPricePoint(basePrice) : basePrice;
+            minPrice = Math.min(minPrice, price);
+            String color = colors.get((int) ((index + v / sizes.size()) % colors.size()));
+            String size = sizes.get(v % sizes.size());
+            if (v > 0) {
+                variants.append(',');
+            }
+            variants.append("{\"shopifyVariantId\":").append(SHOPIFY_ID_BASE * 10 + index * 100 + v)
+                    .append(",\"title\":\"").append(jsonEscape(color + " / " + size))
+                    .append("\",\"price\":").append(minorToDecimal(price))
+                    .append(",\"sku\":\"GEN-").append(index).append('-').append(v)
+                    .append("\",\"available\":").append(random.nextInt(100) < 85)
+                    .append('}');
+        }
+        variants.append(']');
+
+        appendCopyText(row, storeId).append('\t');
+        row.append(SHOPIFY_ID_BASE + index).append('\t');
+        appendCopyText(row, title.toString()).append('\t');
+        appendCopyText(row, handle).append('\t');
+        row.append(minorToDecimal(minPrice)).append('\t');
+        row.append(minPrice).append('\t');
+        (productType != null ? appendCopyText(row, productType) : row.append("\\N")).append('\t');
+        appendCopyText(row, variants.toString()).append('\t');
+        row.append(formatTimestamp(createdAt)).append('\t');
+        row.append(formatTimestamp(updatedAt)).append('\t');
+        row.append(generation).append('\n');
+    }
+
+    /**
+     * Log-normal price in minor units at a retail price point. One product in ten is on sale for 10 to
+     * 50 percent off, which gives the uneven prices such as 404.10 that discounts produce.
+     */
+    private long drawPrice() {
+        double price = Math.exp(logPriceMean + logPriceStdDev * random.nextGaussian());
+        long regular = pricePoint(price) * 100;
+        if (random.nextInt(10) != 0) {
+            return regular;
+        }
+        int percentOff = 10 * (1 + random.nextInt(5));
+        return regular * (100 - percentOff) / 100;
+    }
+
+    /**
+     * Nearest price point in whole kroner, ending in 9 below 100 (49, 79), in 49 or 99 below 2 000
+     * (299, 449, 1099) and in 99 above, like the prices of the sample feed.
+     */
+    static long pricePoint(double kroner) {
+        long step = priceStep(kroner);
+        return Math.max(1, Math.round(kroner / step)) * step - 1;
+    }
+
+    /** The price point one step above a price in minor units, e.g. a larger size. */
+    private static long nextPricePoint(long minor) {
+        return minor + priceStep(minor / 100.0) * 100;
+    }
+
+    private static long priceStep(double kroner) {
+        return kroner < 100 ? 10 : kroner < 2_000 ? 50 : 100;
+    }
+
+    private static String minorToDecimal(long minor) {
+        return (minor / 100) + "." + String.format(Locale.ROOT, "%02d", minor % 100);
+    }
+
+    private static String formatTimestamp(long epochMillis) {
+        return TIMESTAMP.format(OffsetDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC));
+    }
+
+    private static StringBuilder appendCopyText(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> out.append("\\\\");
+                case '\t' -> out.append("\\t");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                default -> out.append(c);
+            }
+        }
+        return out;
+    }
+
+    private static String jsonEscape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private static void flush(CopyIn copyIn, StringBuilder rows) throws SQLException {
+        byte[] bytes = rows.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        rows.setLength(0);
+    }
+
+    private static void addOption(LinkedHashSet<String> target, JsonNode option) {
+        if (option.isTextual() && !option.asText().isBlank()) {
+            target.add(option.asText());
+        }
+    }
+
+    private static List<String> rankByFrequency(List<String> values) {
+        Map<String, Long> frequencies = new HashMap<>();
+        values.forEach(value -> frequencies.merge(value, 1L, Long::sum));
+        return frequencies.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    private static void log(String format, Object... args) {
+        System.out.println("[catalog-generator] " + String.format(Locale.ROOT, format, args));
+    }
+}
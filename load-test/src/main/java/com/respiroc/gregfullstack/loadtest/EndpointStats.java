@@ -0,0 +1,65 @@
+package com.respiroc.gregfullstack.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram and error counter for one endpoint. Latencies are recorded in microseconds with
+ * three significant digits, which keeps p999 meaningful without storing individual samples.
+ */
+final class EndpointStats {
+
+    private static final long MAX_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(2);
+
+    private final String name;
+    private final Recorder recorder = new Recorder(MAX_TRACKABLE_MICROS, 3);
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    EndpointStats(String name) {
+        this.name = name;
+    }
+
+    String name() {
+        return name;
+    }
+
+    void record(long elapsedNanos, boolean success) {
+        requests.increment();
+        if (success) {
+            recorder.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(elapsedNanos), MAX_TRACKABLE_MICROS));
+        } else {
+            errors.increment();
+        }
+    }
+
+    /** Drops everything recorded so far, used to discard the warm-up phase. */
+    void reset() {
+        recorder.reset();
+        requests.reset();
+        errors.reset();
+    }
+
+    Snapshot snapshot() {
+        Histogram histogram = recorder.getIntervalHistogram();
+        return new Snapshot(name, requests.sum(), errors.sum(), histogram);
+    }
+
+    record Snapshot(String name, long requests, long errors, Histogram histogram) {
+
+        double errorRate() {
+            return requests == 0 ? 0.0 : (double) errors / requests;
+        }
+
+        double percentileMillis(double percentile) {
+            return histogram.getTotalCount() == 0 ? 0.0 : histogram.getValueAtPercentile(percentile) / 1000.0;
+        }
+
+        double maxMillis() {
+            return histogram.getTotalCount() == 0 ? 0.0 : histogram.getMaxValue() / 1000.0;
+        }
+    }
+}
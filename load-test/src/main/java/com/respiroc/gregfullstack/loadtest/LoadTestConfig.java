@@ -0,0 +1,65 @@
+package com.respiroc.gregfullstack.loadtest;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+record LoadTestConfig(URI baseUrl,
+                      Duration duration,
+                      Duration warmup,
+                      int users,
+                      int feedPort,
+                      int products,
+                      Path sample,
+                      Path output,
+                      String label,
+                      Path replay,
+                      Duration keystrokeGap,
+                      Duration syncInterval) {
+
+    static LoadTestConfig fromArgs(String[] args) {
+        Map<String, String> values = parseArgs(args);
+        return new LoadTestConfig(
+                URI.create(values.getOrDefault("base-url", "http://localhost:8080")),
+                parseDuration(values.getOrDefault("duration", "60s")),
+                parseDuration(values.getOrDefault("warmup", "10s")),
+                Integer.parseInt(values.getOrDefault("users", "16")),
+                Integer.parseInt(values.getOrDefault("feed-port", "18089")),
+                Integer.parseInt(values.getOrDefault("products", "50")),
+                Path.of(values.getOrDefault("sample", "sample-products.json")),
+                Path.of(values.getOrDefault("output", "build/load-test/summary.json")),
+                values.getOrDefault("label", "local"),
+                values.containsKey("replay") ? Path.of(values.get("replay")) : null,
+                parseDuration(values.getOrDefault("keystroke-gap", "120ms")),
+                parseDuration(values.getOrDefault("sync-interval", "30s")));
+    }
+
+    static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --key=value but got: " + arg);
+            }
+            int separator = arg.indexOf('=');
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return values;
+    }
+
+    /** Accepts {@code 250ms}, {@code 30s} or {@code 5m}. */
+    static Duration parseDuration(String value) {
+        String trimmed = value.trim().toLowerCase();
+        if (trimmed.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(trimmed.substring(0, trimmed.length() - 2)));
+        }
+        if (trimmed.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(trimmed.substring(0, trimmed.length() - 1)));
+        }
+        if (trimmed.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(trimmed.substring(0, trimmed.length() - 1)));
+        }
+        return Duration.ofSeconds(Long.parseLong(trimmed));
+    }
+}
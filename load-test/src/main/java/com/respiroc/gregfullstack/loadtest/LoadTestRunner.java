@@ -0,0 +1,315 @@
+package com.respiroc.gregfullstack.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Drives the HTMX endpoints of a running app with a mix of page browsing, typeahead search bursts,
+ * detail views and periodic syncs (or with a recorded request log) and writes a JSON summary with
+ * throughput, latency percentiles and error rates per endpoint.
+ *
+ * <p>The app must be started with {@code --catalog.feed.url=http://localhost:<feed-port>/products.json}
+ * so that the seeded catalog served by {@link SeedFeedServer} is what gets synced.
+ */
+public final class LoadTestRunner {
+
+    private static final Pattern PRODUCT_LINK = Pattern.compile("href=\"/products/(\\d+)\"");
+    private static final Pattern WORD = Pattern.compile("[\\p{L}]{3,}");
+
+    private final LoadTestConfig config;
+    private final HttpClient httpClient;
+    private final Map<String, EndpointStats> stats = new LinkedHashMap<>();
+    private final List<Long> productIds = new ArrayList<>();
+    private final List<String> searchWords = new ArrayList<>();
+    private final List<String> replayLines = new ArrayList<>();
+    private final AtomicInteger replayCursor = new AtomicInteger();
+
+    private LoadTestRunner(LoadTestConfig config) {
+        this.config = config;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        for (String endpoint : List.of("products.page", "search.results", "products.detail", "products.sync")) {
+            stats.put(endpoint, new EndpointStats(endpoint));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.fromArgs(args);
+        new LoadTestRunner(config).run();
+    }
+
+    private void run() throws Exception {
+        try (SeedFeedServer feed = SeedFeedServer.start(config.sample(), config.products(), config.feedPort())) {
+            log("Seed feed with %d products at %s", config.products(), feed.url());
+            log("Start the app with --catalog.feed.url=%s", feed.url());
+
+            awaitHealthy();
+            seed(feed);
+            if (config.replay() != null) {
+                replayLines.addAll(Files.readAllLines(config.replay()).stream()
+                        .map(String::trim)
+                        .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                        .toList());
+                log("Replaying %d recorded requests", replayLines.size());
+            }
+
+            if (!config.warmup().isZero()) {
+                log("Warming up for %s", config.warmup());
+                drive(config.warmup());
+                stats.values().forEach(EndpointStats::reset);
+            }
+
+            log("Running %d users for %s against %s", config.users(), config.duration(), config.baseUrl());
+            Instant started = Instant.now();
+            drive(config.duration());
+            Duration elapsed = Duration.between(started, Instant.now());
+
+            writeSummary(started, elapsed);
+        }
+    }
+
+    private void awaitHealthy() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(120);
+        while (System.nanoTime() < deadline) {
+            try {
+                HttpResponse<Void> response = httpClient.send(
+                        HttpRequest.newBuilder(config.baseUrl().resolve("/actuator/health")).GET().build(),
+                        HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException ignored) {
+                // not up yet
+            }
+            Thread.sleep(1_000);
+        }
+        throw new IllegalStateException("App at " + config.baseUrl() + " did not become healthy");
+    }
+
+    private void seed(SeedFeedServer feed) throws IOException, InterruptedException {
+        HttpResponse<String> sync = httpClient.send(htmx("POST", "/products/sync"), HttpResponse.BodyHandlers.ofString());
+        if (sync.statusCode() != 202) {
+            throw new IllegalStateException("Seeding sync failed with HTTP " + sync.statusCode());
+        }
+
+        // The sync runs in the background; wait until its products are listed
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(120);
+        while (productIds.isEmpty() && System.nanoTime() < deadline) {
+            HttpResponse<String> page = httpClient.send(htmx("GET", "/products?page=0&size=50"), HttpResponse.BodyHandlers.ofString());
+            Matcher matcher = PRODUCT_LINK.matcher(page.body());
+            while (matcher.find()) {
+                productIds.add(Long.parseLong(matcher.group(1)));
+            }
+            if (productIds.isEmpty()) {
+                Thread.sleep(1_000);
+            }
+        }
+        if (productIds.isEmpty()) {
+            throw new IllegalStateException("No products visible after seeding; is catalog.feed.url pointing at " + feed.url() + "?");
+        }
+
+        for (String title : feed.titles()) {
+            Matcher words = WORD.matcher(title.toLowerCase(Locale.ROOT));
+            while (words.find()) {
+                searchWords.add(words.group());
+            }
+        }
+        log("Seeded %d products, %d search words", productIds.size(), searchWords.size());
+    }
+
+    private void drive(Duration duration) throws InterruptedException {
+        long deadline = System.nanoTime() + duration.toNanos();
+        try (ExecutorService users = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < config.users(); i++) {
+                users.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        if (replayLines.isEmpty()) {
+                            nextSyntheticAction();
+                        } else {
+                            nextReplayedRequest();
+                        }
+                    }
+                });
+            }
+            users.submit(() -> {
+                long interval = config.syncInterval().toNanos();
+                // Once the next sync would fall after the deadline there is nothing left to wait for, so
+                // the run is not held open for up to a full interval
+                while (deadline - System.nanoTime() > interval && !Thread.currentThread().isInterrupted()) {
+                    sleep(config.syncInterval());
+                    execute("products.sync", htmx("POST", "/products/sync"));
+                }
+            });
+        }
+    }
+
+    private void nextSyntheticAction() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int roll = random.nextInt(100);
+        if (roll < 50) {
+            int size = List.of(10, 20, 50).get(random.nextInt(3));
+            int pages = Math.max(1, (int) Math.ceil((double) productIds.size() / size));
+            execute("products.page", htmx("GET", "/products?page=" + random.nextInt(pages) + "&size=" + size));
+        } else if (roll < 80) {
+            typeahead(searchWords.get(random.nextInt(searchWords.size())));
+        } else {
+            long id = productIds.get(random.nextInt(productIds.size()));
+            execute("products.detail", plain("/products/" + id));
+        }
+    }
+
+    /**
+     * Simulates a user typing a word: one request per keystroke, a short pause between them. Like the
+     * search form, each request carries the tab's client id and keystroke sequence number.
+     */
+    private void typeahead(String word) {
+        String client = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+        for (int length = 1; length <= word.length(); length++) {
+            String prefix = URLEncoder.encode(word.substring(0, length), StandardCharsets.UTF_8);
+            execute("search.results", htmx("GET", "/search/results?q=" + prefix + "&client=" + client + "&seq=" + length));
+            sleep(config.keystrokeGap());
+        }
+    }
+
+    private void nextReplayedRequest() {
+        String line = replayLines.get(Math.floorMod(replayCursor.getAndIncrement(), replayLines.size()));
+        String[] parts = line.split("\\s+", 2);
+        String method = parts.length == 2 ? parts[0].toUpperCase(Locale.ROOT) : "GET";
+        String path = (parts.length == 2 ? parts[1] : parts[0])
+                .replace("{id}", String.valueOf(productIds.get(ThreadLocalRandom.current().nextInt(productIds.size()))));
+        execute(classify(method, path), htmx(method, path));
+    }
+
+    private static String classify(String method, String path) {
+        if (path.startsWith("/search/results")) {
+            return "search.results";
+        }
+        if (path.startsWith("/products/sync")) {
+            return "products.sync";
+        }
+        if (path.matches("/products/\\d+.*")) {
+            return "products.detail";
+        }
+        return "products.page";
+    }
+
+    private void execute(String endpoint, HttpRequest request) {
+        long start = System.nanoTime();
+        boolean success;
+        try {
+            HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+            success = response.statusCode() < 400;
+        } catch (IOException e) {
+            success = false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        stats.get(endpoint).record(System.nanoTime() - start, success);
+    }
+
+    private HttpRequest htmx(String method, String path) {
+        return HttpRequest.newBuilder(config.baseUrl().resolve(path))
+                .timeout(Duration.ofSeconds(30))
+                .header("HX-Request", "true")
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .build();
+    }
+
+    private HttpRequest plain(String path) {
+        return HttpRequest.newBuilder(config.baseUrl().resolve(path))
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+    }
+
+    private void writeSummary(Instant started, Duration elapsed) throws IOException {
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        double seconds = Math.max(elapsed.toMillis(), 1) / 1000.0;
+
+        ObjectNode root = mapper.createObjectNode();
+        root.put("label", config.label());
+        root.put("startedAt", started.toString());
+        root.put("durationSeconds", seconds);
+        root.put("users", config.users());
+        root.put("products", productIds.size());
+        root.put("mode", replayLines.isEmpty() ? "synthetic" : "replay");
+
+        ObjectNode endpoints = root.putObject("endpoints");
+        Histogram total = new Histogram(3);
+        long totalRequests = 0;
+        long totalErrors = 0;
+
+        for (EndpointStats endpoint : stats.values()) {
+            EndpointStats.Snapshot snapshot = endpoint.snapshot();
+            total.add(snapshot.histogram());
+            totalRequests += snapshot.requests();
+            totalErrors += snapshot.errors();
+            writeEndpoint(endpoints.putObject(snapshot.name()), snapshot, seconds);
+            log("%-16s %8d req %8.1f req/s  p50 %7.2f ms  p99 %7.2f ms  p999 %7.2f ms  errors %.2f%%",
+                    snapshot.name(), snapshot.requests(), snapshot.requests() / seconds,
+                    snapshot.percentileMillis(50), snapshot.percentileMillis(99), snapshot.percentileMillis(99.9),
+                    snapshot.errorRate() * 100);
+        }
+
+        writeEndpoint(root.putObject("total"), new EndpointStats.Snapshot("total", totalRequests, totalErrors, total), seconds);
+
+        Path output = config.output();
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        mapper.writeValue(output.toFile(), root);
+        log("Summary written to %s", output.toAbsolutePath());
+    }
+
+    private static void writeEndpoint(ObjectNode node, EndpointStats.Snapshot snapshot, double seconds) {
+        node.put("requests", snapshot.requests());
+        node.put("errors", snapshot.errors());
+        node.put("errorRate", snapshot.errorRate());
+        node.put("throughputPerSecond", snapshot.requests() / seconds);
+        ObjectNode latency = node.putObject("latencyMs");
+        latency.put("p50", snapshot.percentileMillis(50));
+        latency.put("p99", snapshot.percentileMillis(99));
+        latency.put("p999", snapshot.percentileMillis(99.9));
+        latency.put("max", snapshot.maxMillis());
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void log(String format, Object... args) {
+        System.out.println("[load-test] " + String.format(Locale.ROOT, format, args));
+    }
+}
@@ -0,0 +1,87 @@
+package com.respiroc.gregfullstack.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serves a deterministic catalog derived from {@code sample-products.json} as a stand-in for the
+ * upstream feed, so the app under test can be seeded through its normal sync path.
+ */
+final class SeedFeedServer implements AutoCloseable {
+
+    private static final long ID_STRIDE = 1_000_000_000L;
+
+    private final HttpServer server;
+    private final List<String> titles;
+
+    private SeedFeedServer(HttpServer server, List<String> titles) {
+        this.server = server;
+        this.titles = titles;
+    }
+
+    static SeedFeedServer start(Path sample, int products, int port) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode source = mapper.readTree(sample.toFile()).get("products");
+        if (source == null || !source.isArray() || source.isEmpty()) {
+            throw new IllegalArgumentException("No products found in " + sample);
+        }
+
+        ObjectNode root = mapper.createObjectNode();
+        ArrayNode expanded = root.putArray("products");
+        List<String> titles = new ArrayList<>();
+
+        for (int i = 0; i < products; i++) {
+            int copy = i / source.size();
+            ObjectNode product = ((ObjectNode) source.get(i % source.size())).deepCopy();
+            String suffix = copy == 0 ? "" : " " + copy;
+
+            product.put("id", product.get("id").asLong() + copy * ID_STRIDE);
+            product.put("title", product.get("title").asText() + suffix);
+            product.put("handle", product.get("handle").asText() + (copy == 0 ? "" : "-" + copy));
+            JsonNode variants = product.get("variants");
+            if (variants != null) {
+                for (JsonNode variant : variants) {
+                    ((ObjectNode) variant).put("id", variant.get("id").asLong() + copy * ID_STRIDE);
+                }
+            }
+
+            expanded.add(product);
+            titles.add(product.get("title").asText());
+        }
+
+        byte[] body = mapper.writeValueAsBytes(root);
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/products.json", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        return new SeedFeedServer(server, titles);
+    }
+
+    String url() {
+        return "http://localhost:" + server.getAddress().getPort() + "/products.json";
+    }
+
+    List<String> titles() {
+        return titles;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
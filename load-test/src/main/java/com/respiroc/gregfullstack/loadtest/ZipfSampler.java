@@ -0,0 +1,40 @@
+package com.respiroc.gregfullstack.loadtest;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * Samples items with Zipf-distributed popularity: the item of rank {@code k} is drawn with probability
+ * proportional to {@code 1 / k^exponent}. Uses a precomputed CDF, so each draw is a binary search.
+ */
+final class ZipfSampler<T> {
+
+    private final List<T> items;
+    private final double[] cumulative;
+
+    ZipfSampler(List<T> itemsByRank, double exponent) {
+        if (itemsByRank.isEmpty()) {
+            throw new IllegalArgumentException("Zipf sampler needs at least one item");
+        }
+        this.items = List.copyOf(itemsByRank);
+        this.cumulative = new double[items.size()];
+
+        double sum = 0;
+        for (int rank = 1; rank <= items.size(); rank++) {
+            sum += 1.0 / Math.pow(rank, exponent);
+            cumulative[rank - 1] = sum;
+        }
+        for (int i = 0; i < cumulative.length; i++) {
+            cumulative[i] /= sum;
+        }
+    }
+
+    T sample(RandomGenerator random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return items.get(Math.min(index, items.size() - 1));
+    }
+}
@@ -0,0 +1,77 @@
+package com.respiroc.gregfullstack.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CatalogGeneratorTest {
+
+    private static final Instant EPOCH = Instant.parse("2025-01-01T00:00:00Z");
+
+    private final JsonNode sample;
+
+    CatalogGeneratorTest() throws Exception {
+        sample = new ObjectMapper().readTree("""
+                [
+                  {"title": "Seamless Sports Bra", "product_type": "Sports Bra", "variants": [
+                    {"option1": "Black", "option2": "S", "price": "449.00"},
+                    {"option1": "Black", "option2": "M", "price": "449.00"}
+                  ]},
+                  {"title": "Flare Leggings", "product_type": "Leggings", "variants": [
+                    {"option1": "Navy", "option2": "M", "price": "899.00"}
+                  ]},
+                  {"title": "Soft Tee", "product_type": "T-Shirt", "variants": [
+                    {"option1": "White", "option2": "L", "price": "299.00"}
+                  ]}
+                ]
+                """);
+    }
+
+    @Test
+    void sameSeedAndEpochProduceTheSameRows() {
+        String first = generate(42, EPOCH, 500);
+        String second = generate(42, EPOCH, 500);
+
+        assertEquals(first, second);
+        assertNotEquals(first, generate(43, EPOCH, 500));
+        assertNotEquals(first, generate(42, EPOCH.plusSeconds(1), 500));
+    }
+
+    @Test
+    void rowsCarryStoreAndGeneration() {
+        String rows = generate(42, EPOCH, 10);
+
+        for (String row : rows.split("\n")) {
+            String[] columns = row.split("\t");
+            assertEquals(11, columns.length);
+            assertEquals("generated", columns[0]);
+            assertEquals(new BigDecimal(columns[4]).movePointRight(2).longValueExact(), Long.parseLong(columns[5]));
+            assertEquals("7", columns[10]);
+            assertTrue(columns[9].compareTo("2025-01-01") < 0, "updated_at before the epoch: " + columns[9]);
+        }
+    }
+
+    @Test
+    void pricesSnapToRetailPricePoints() {
+        assertEquals(49, CatalogGenerator.pricePoint(52));
+        assertEquals(449, CatalogGenerator.pricePoint(437));
+        assertEquals(1099, CatalogGenerator.pricePoint(1080));
+        assertEquals(2499, CatalogGenerator.pricePoint(2480));
+    }
+
+    private String generate(long seed, Instant epoch, int products) {
+        CatalogGenerator generator = new CatalogGenerator(sample, seed, 60, 1.07, "generated", epoch);
+        StringBuilder rows = new StringBuilder();
+        for (int i = 0; i < products; i++) {
+            generator.appendRow(rows, i, 7);
+        }
+        return rows.toString();
+    }
+}
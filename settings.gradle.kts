@@ -1 +1,3 @@
 rootProject.name = "greg-fullstack"
+
+include("load-test")
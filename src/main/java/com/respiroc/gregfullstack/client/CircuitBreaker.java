@@ -0,0 +1,64 @@
+package com.respiroc.gregfullstack.client;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Minimal consecutive-failure circuit breaker. After {@code failureThreshold} failed calls it rejects
+ * calls for {@code openDuration}, then lets a single trial call through (half-open) to decide whether
+ * to close again.
+ */
+class CircuitBreaker {
+
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final Clock clock;
+
+    private int consecutiveFailures;
+    private Instant openUntil;
+    private boolean trialInFlight;
+
+    CircuitBreaker(int failureThreshold, Duration openDuration, Clock clock) {
+        this.failureThreshold = Math.max(failureThreshold, 1);
+        this.openDuration = openDuration;
+        this.clock = clock;
+    }
+
+    synchronized boolean tryAcquire() {
+        if (openUntil == null) {
+            return true;
+        }
+        if (clock.instant().isBefore(openUntil) || trialInFlight) {
+            return false;
+        }
+        trialInFlight = true;
+        return true;
+    }
+
+    synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        openUntil = null;
+        trialInFlight = false;
+    }
+
+    synchronized void onFailure() {
+        consecutiveFailures++;
+        if (trialInFlight || consecutiveFailures >= failureThreshold) {
+            openUntil = clock.instant().plus(openDuration);
+        }
+        trialInFlight = false;
+    }
+
+    /**
+     * Ends a call that was neither a success nor a failure of the upstream, e.g. one interrupted by a
+     * cancelled sync. A half-open trial is released so the next call can try again.
+     */
+    synchronized void onAbandoned() {
+        trialInFlight = false;
+    }
+
+    synchronized boolean isOpen() {
+        return openUntil != null && clock.instant().isBefore(openUntil);
+    }
+}
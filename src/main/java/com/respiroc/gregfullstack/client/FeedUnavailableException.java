@@ -0,0 +1,12 @@
+package com.respiroc.gregfullstack.client;
+
+public class FeedUnavailableException extends RuntimeException {
+
+    public FeedUnavailableException(String message) {
+        super(message);
+    }
+
+    public FeedUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
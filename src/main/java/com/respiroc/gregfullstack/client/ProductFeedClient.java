@@ -0,0 +1,222 @@
+package com.respiroc.gregfullstack.client;
+
+import com.respiroc.gregfullstack.config.FeedClientProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * HTTP client for the upstream product feed. Uses a shared JDK {@link HttpClient} (HTTP/2 with
+ * connection reuse), negotiates gzip, bounds every exchange with connect and read timeouts, retries
+ * transient failures with jittered exponential backoff and trips a circuit breaker when the feed
+ * keeps failing. Conditional requests turn an unchanged feed into a single 304. Validators and the
+ * circuit breaker are kept per feed URL, so one failing store does not block the others.
+ */
+@Component
+public class ProductFeedClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductFeedClient.class);
+
+    private final FeedClientProperties properties;
+    private final HttpClient httpClient;
+    private final Map<URI, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+    private final Map<URI, Validators> validators = new ConcurrentHashMap<>();
+
+    public ProductFeedClient(FeedClientProperties properties) {
+        this.properties = properties;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(properties.connectTimeout())
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    /**
+     * Fetches a product feed.
+     *
+     * @param url         feed to fetch
+     * @param conditional send the validators of the last successful fetch of this feed
+     * @return the feed body, or empty when the upstream answered 304 Not Modified
+     * @throws FeedUnavailableException when all attempts fail or the circuit is open
+     */
+    public Optional<String> fetchProducts(URI url, boolean conditional) {
+        CircuitBreaker circuitBreaker = circuitBreakers.computeIfAbsent(url, ignored ->
+                new CircuitBreaker(properties.failureThreshold(), properties.openDuration(), Clock.systemUTC()));
+        int maxAttempts = Math.max(properties.maxAttempts(), 1);
+        FeedUnavailableException lastFailure = null;
+
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            if (!circuitBreaker.tryAcquire()) {
+                throw new FeedUnavailableException("Circuit open for " + url + "; skipping request");
+            }
+
+            Duration retryAfter = null;
+            boolean settled = false;
+            try {
+                HttpResponse<byte[]> response = send(buildRequest(url, conditional));
+                int status = response.statusCode();
+                // Only throttling and server errors count against the feed
+                boolean transientFailure = status == 429 || status >= 500;
+                if (transientFailure) {
+                    circuitBreaker.onFailure();
+                } else {
+                    circuitBreaker.onSuccess();
+                }
+                settled = true;
+
+                if (status == 304) {
+                    logger.debug("Feed {} not modified", url);
+                    return Optional.empty();
+                }
+                if (status >= 200 && status < 300) {
+                    rememberValidators(url, response);
+                    return Optional.of(decode(response));
+                }
+                if (!transientFailure) {
+                    throw new FeedUnavailableException("Feed " + url + " answered HTTP " + status);
+                }
+
+                retryAfter = parseRetryAfter(response);
+                lastFailure = new FeedUnavailableException("Feed " + url + " answered HTTP " + status);
+            } catch (IOException | TimeoutException e) {
+                circuitBreaker.onFailure();
+                settled = true;
+                lastFailure = new FeedUnavailableException("Feed " + url + " request failed: " + e, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new FeedUnavailableException("Interrupted while fetching " + url, e);
+            } finally {
+                if (!settled) {
+                    // Interrupted or failed before the upstream answered; a half-open trial must not stay taken
+                    circuitBreaker.onAbandoned();
+                }
+            }
+
+            if (attempt < maxAttempts) {
+                Duration delay = retryAfter != null ? retryAfter : backoff(attempt);
+                logger.warn("Attempt {}/{} for {} failed ({}); retrying in {} ms",
+                        attempt, maxAttempts, url, lastFailure.getMessage(), delay.toMillis());
+                sleep(delay);
+            }
+        }
+
+        throw lastFailure;
+    }
+
+    /**
+     * Drops the stored ETag/Last-Modified of a feed so that its next conditional fetch downloads the
+     * full feed, e.g. after the previous body could not be processed.
+     */
+    public void forgetValidators(URI url) {
+        validators.remove(url);
+    }
+
+    private HttpRequest buildRequest(URI url, boolean conditional) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(url)
+                .timeout(properties.readTimeout())
+                .header("Accept", "application/json")
+                .header("Accept-Encoding", "gzip")
+                .GET();
+
+        Validators known = conditional ? validators.get(url) : null;
+        if (known != null) {
+            if (known.etag() != null) {
+                builder.header("If-None-Match", known.etag());
+            }
+            if (known.lastModified() != null) {
+                builder.header("If-Modified-Since", known.lastModified());
+            }
+        }
+        return builder.build();
+    }
+
+    private HttpResponse<byte[]> send(HttpRequest request) throws IOException, InterruptedException, TimeoutException {
+        // The request timeout only covers the response headers; bound the body download as well
+        CompletableFuture<HttpResponse<byte[]>> future = httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+        try {
+            return future.get(properties.readTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private String decode(HttpResponse<byte[]> response) throws IOException {
+        boolean gzipped = response.headers().firstValue("Content-Encoding")
+                .map(encoding -> encoding.equalsIgnoreCase("gzip"))
+                .orElse(false);
+        if (!gzipped) {
+            return new String(response.body(), StandardCharsets.UTF_8);
+        }
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private void rememberValidators(URI url, HttpResponse<?> response) {
+        String etag = response.headers().firstValue("ETag").orElse(null);
+        String lastModified = response.headers().firstValue("Last-Modified").orElse(null);
+        if (etag == null && lastModified == null) {
+            validators.remove(url);
+        } else {
+            validators.put(url, new Validators(etag, lastModified));
+        }
+    }
+
+    private Duration parseRetryAfter(HttpResponse<?> response) {
+        return response.headers().firstValue("Retry-After")
+                .flatMap(value -> {
+                    try {
+                        return Optional.of(Duration.ofSeconds(Long.parseLong(value.trim())));
+                    } catch (NumberFormatException e) {
+                        return Optional.empty();
+                    }
+                })
+                .map(delay -> delay.compareTo(properties.maxBackoff()) > 0 ? properties.maxBackoff() : delay)
+                .orElse(null);
+    }
+
+    private Duration backoff(int attempt) {
+        long initial = Math.max(properties.initialBackoff().toMillis(), 1);
+        long cap = Math.min(properties.maxBackoff().toMillis(), initial << Math.min(attempt - 1, 20));
+        long half = Math.max(cap / 2, 1);
+        return Duration.ofMillis(half + ThreadLocalRandom.current().nextLong(half + 1));
+    }
+
+    private void sleep(Duration delay) {
+        try {
+            Thread.sleep(delay.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FeedUnavailableException("Interrupted while waiting to retry", e);
+        }
+    }
+
+    private record Validators(String etag, String lastModified) {
+    }
+}
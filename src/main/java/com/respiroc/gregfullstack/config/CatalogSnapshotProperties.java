@@ -0,0 +1,15 @@
+package com.respiroc.gregfullstack.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "catalog.snapshot")
+public record CatalogSnapshotProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("data/catalog.snapshot") Path path,
+        @DefaultValue("5s") Duration probeInterval,
+        @DefaultValue("1s") Duration probeTimeout) {
+}
@@ -0,0 +1,19 @@
+package com.respiroc.gregfullstack.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.net.URI;
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "catalog.feed")
+public record FeedClientProperties(
+        @DefaultValue("https://famme.no/products.json") URI url,
+        @DefaultValue("5s") Duration connectTimeout,
+        @DefaultValue("30s") Duration readTimeout,
+        @DefaultValue("4") int maxAttempts,
+        @DefaultValue("500ms") Duration initialBackoff,
+        @DefaultValue("10s") Duration maxBackoff,
+        @DefaultValue("5") int failureThreshold,
+        @DefaultValue("5m") Duration openDuration) {
+}
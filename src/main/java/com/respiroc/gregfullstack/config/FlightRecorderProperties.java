@@ -0,0 +1,17 @@
+package com.respiroc.gregfullstack.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "diagnostics.jfr")
+public record FlightRecorderProperties(
+        @DefaultValue("profile") String settings,
+        @DefaultValue("jfr") Path dumpDirectory,
+        @DefaultValue("30m") Duration maxAge,
+        @DefaultValue("256MB") DataSize maxSize,
+        @DefaultValue("5") int maxFiles) {
+}
@@ -0,0 +1,15 @@
+package com.respiroc.gregfullstack.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "catalog.price-history")
+public record PriceHistoryProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("2") int partitionsAhead,
+        @DefaultValue("365d") Duration seriesWindow,
+        @DefaultValue("7d") Duration moversWindow,
+        @DefaultValue("100") int maxMovers) {
+}
@@ -0,0 +1,13 @@
+package com.respiroc.gregfullstack.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "catalog.purge")
+public record PurgeProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("10m") Duration gracePeriod,
+        @DefaultValue("500") int batchSize) {
+}
@@ -0,0 +1,26 @@
+package com.respiroc.gregfullstack.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "catalog.retention")
+public record RetentionProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("MAX_COUNT") Policy policy,
+        @DefaultValue("50") int maxProducts,
+        @DefaultValue("30d") Duration maxAge,
+        @DefaultValue("3") int maxMissedSyncs,
+        @DefaultValue("500") int batchSize,
+        @DefaultValue("0ms") Duration batchPause) {
+
+    public enum Policy {
+        /** Keep only the {@code maxProducts} most recently updated products. */
+        MAX_COUNT,
+        /** Remove products not updated within {@code maxAge}. */
+        MAX_AGE,
+        /** Remove products missing from the feed for more than {@code maxMissedSyncs} completed syncs. */
+        UNSEEN_SYNCS
+    }
+}
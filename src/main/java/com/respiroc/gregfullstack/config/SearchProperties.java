@@ -0,0 +1,14 @@
+package com.respiroc.gregfullstack.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "catalog.search")
+public record SearchProperties(
+        @DefaultValue("2s") Duration cacheTtl,
+        @DefaultValue("1000") int cacheMaxEntries,
+        @DefaultValue("150ms") Duration debounce,
+        @DefaultValue("10000") int maxTrackedClients) {
+}
@@ -0,0 +1,16 @@
+package com.respiroc.gregfullstack.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "sql.diagnostics")
+public record SqlDiagnosticsProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("200ms") Duration slowQueryThreshold,
+        @DefaultValue("5") int repeatedQueryThreshold,
+        @DefaultValue("5") int httpQueryBudget,
+        @DefaultValue("0") int syncQueryBudget,
+        @DefaultValue("false") boolean failOnBudgetExceeded) {
+}
@@ -0,0 +1,24 @@
+package com.respiroc.gregfullstack.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Storefronts to sync and how their runs are scheduled. When no store is configured, a single
+ * {@code famme} store reading {@code catalog.feed.url} is used.
+ */
+@ConfigurationProperties(prefix = "catalog.stores")
+public record StoreSyncProperties(
+        @DefaultValue List<Store> feeds,
+        @DefaultValue("PT1H") Duration interval,
+        @DefaultValue("0s") Duration initialDelay,
+        @DefaultValue("2") int parallelism) {
+
+    /** One storefront feed; {@code id} is stored as {@code store_id} on every product it produces. */
+    public record Store(String id, URI url) {
+    }
+}
@@ -0,0 +1,13 @@
+package com.respiroc.gregfullstack.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+@ConfigurationProperties(prefix = "catalog.sync")
+public record SyncPipelineProperties(
+        @DefaultValue("2") int parseParallelism,
+        @DefaultValue("1") int diffParallelism,
+        @DefaultValue("4") int writeParallelism,
+        @DefaultValue("64") int queueCapacity,
+        @DefaultValue("25") int diffBatchSize) {
+}
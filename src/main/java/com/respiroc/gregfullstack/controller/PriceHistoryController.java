@@ -0,0 +1,44 @@
+package com.respiroc.gregfullstack.controller;
+
+import com.respiroc.gregfullstack.model.PriceChange;
+import com.respiroc.gregfullstack.model.PriceMover;
+import com.respiroc.gregfullstack.model.Product;
+import com.respiroc.gregfullstack.service.PriceHistoryService;
+import com.respiroc.gregfullstack.service.ProductCatalog;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api")
+public class PriceHistoryController {
+
+    private final ProductCatalog productCatalog;
+    private final PriceHistoryService priceHistoryService;
+
+    public PriceHistoryController(ProductCatalog productCatalog, PriceHistoryService priceHistoryService) {
+        this.productCatalog = productCatalog;
+        this.priceHistoryService = priceHistoryService;
+    }
+
+    @GetMapping("/products/{id}/price-history")
+    public List<PriceChange> priceSeries(@PathVariable Long id) {
+        Product product = productCatalog.findById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found"));
+        if (product.getShopifyProductId() == null) {
+            return List.of();
+        }
+        return priceHistoryService.findSeries(product.getStoreId(), product.getShopifyProductId());
+    }
+
+    @GetMapping("/price-history/movers")
+    public List<PriceMover> biggestMovers(@RequestParam(name = "limit", defaultValue = "20") int limit) {
+        return priceHistoryService.findBiggestMovers(limit);
+    }
+}
@@ -1,20 +1,38 @@
 package com.respiroc.gregfullstack.controller;
 
+import com.respiroc.gregfullstack.model.CatalogStats;
+import com.respiroc.gregfullstack.model.MinorUnits;
 import com.respiroc.gregfullstack.model.Product;
 import com.respiroc.gregfullstack.model.ProductVariant;
 import com.respiroc.gregfullstack.repository.ProductRepository;
-import com.respiroc.gregfullstack.service.ProductSyncService;
+import com.respiroc.gregfullstack.service.CatalogStatsService;
+import com.respiroc.gregfullstack.service.ProductCatalog;
+import com.respiroc.gregfullstack.service.ProductSearchService;
+import com.respiroc.gregfullstack.service.StoreSyncScheduler;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.math.BigDecimal;
+import java.time.ZoneOffset;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 @Controller
 public class ProductController {
@@ -22,37 +40,100 @@ public class ProductController {
     private static final Logger logger = LoggerFactory.getLogger(ProductController.class);
     private static final int DEFAULT_PAGE_SIZE = 10;
     private static final int MAX_PAGE_SIZE = 50;
+    private static final String PRODUCT_STREAM_ATTRIBUTE = ProductController.class.getName() + ".productStream";
+    // Part of the home page ETag, so a redeploy with changed templates is never answered with a 304
+    private static final String STARTED_AT = Long.toHexString(System.currentTimeMillis());
 
     private final ProductRepository productRepository;
-    private final ProductSyncService productSyncService;
-
-    public ProductController(ProductRepository productRepository, ProductSyncService productSyncService) {
+    private final ProductCatalog productCatalog;
+    private final ProductSearchService productSearchService;
+    private final StoreSyncScheduler storeSyncScheduler;
+    private final CatalogStatsService catalogStatsService;
+
+    public ProductController(ProductRepository productRepository,
+                             ProductCatalog productCatalog,
+                             ProductSearchService productSearchService,
+                             StoreSyncScheduler storeSyncScheduler,
+                             CatalogStatsService catalogStatsService) {
         this.productRepository = productRepository;
-        this.productSyncService = productSyncService;
+        this.productCatalog = productCatalog;
+        this.productSearchService = productSearchService;
+        this.storeSyncScheduler = storeSyncScheduler;
+        this.catalogStatsService = catalogStatsService;
     }
 
     @GetMapping("/")
-    public String index(Model model) {
+    public String index(WebRequest webRequest, HttpServletResponse response, Model model) {
         logger.info("Accessing home page");
-        model.addAttribute("productCount", productRepository.count());
+        Optional<CatalogStats> stats = catalogStatsService.current();
+        if (stats.isEmpty()) {
+            model.addAttribute("productCount", productCatalog.count());
+            model.addAttribute("stats", null);
+            return "index";
+        }
+
+        // The page only changes when the statistics are refreshed, so browsers revalidate with the ETag
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+        if (webRequest.checkNotModified(homePageEtag(stats.get()))) {
+            return null;
+        }
+        model.addAttribute("productCount", stats.get().totalProducts());
+        model.addAttribute("stats", stats.get());
         return "index";
     }
 
+    /** Drops what was derived from the catalog after an add, edit or delete. */
+    private void productChanged() {
+        productSearchService.invalidate();
+        productCatalog.catalogChanged();
+        // A refresh also moves the home page ETag, so browsers do not keep revalidating the old figures
+        catalogStatsService.refresh();
+    }
+
+    private static String homePageEtag(CatalogStats stats) {
+        long refreshedAt = stats.refreshedAt() != null ? stats.refreshedAt().toInstant(ZoneOffset.UTC).toEpochMilli() : 0L;
+        return "\"home-" + STARTED_AT + "-" + Long.toHexString(refreshedAt) + "\"";
+    }
+
     @GetMapping("/search")
     public String searchPage(Model model) {
         logger.info("Accessing product search page");
-        model.addAttribute("totalProducts", productRepository.count());
+        model.addAttribute("totalProducts", productCatalog.count());
         return "search";
     }
 
+    /**
+     * Answered asynchronously: the search is debounced per client, and the request thread is released
+     * while the client may still be typing.
+     */
     @GetMapping("/search/results")
-    public String searchProducts(@RequestParam(name = "q", required = false) String query, Model model) {
+    public CompletableFuture<String> searchProducts(@RequestParam(name = "q", required = false) String query,
+                                                    @RequestParam(name = "client", required = false) String client,
+                                                    @RequestParam(name = "seq", required = false) Long sequence,
+                                                    HttpServletRequest request,
+                                                    HttpServletResponse response,
+                                                    Model model) {
         String searchTerm = query != null ? query.trim() : "";
-        boolean searchPerformed = !searchTerm.isEmpty();
+        if (searchTerm.isEmpty()) {
+            return CompletableFuture.completedFuture(renderSearchResults(query, List.of(), model));
+        }
 
         logger.info("Searching for products with query: '{}'", searchTerm);
 
-        List<Product> products = searchPerformed ? productRepository.searchByTitle(searchTerm) : List.of();
+        // Clients that do not send the search form's client id are told apart by their session
+        String searchClient = client != null && !client.isBlank() ? client : "session:" + request.getSession().getId();
+        return productSearchService.search(searchClient, sequence, searchTerm).thenApply(products -> {
+            if (products.isEmpty()) {
+                // A newer keystroke from this client is already being answered
+                response.setHeader("HX-Reswap", "none");
+                return "fragments/empty";
+            }
+            return renderSearchResults(query, products.get(), model);
+        });
+    }
+
+    private String renderSearchResults(String query, List<Product> products, Model model) {
+        boolean searchPerformed = query != null && !query.isBlank();
 
         model.addAttribute("products", products);
         model.addAttribute("searchTerm", query != null ? query : "");
@@ -83,7 +164,7 @@ public class ProductController {
             pageNumber = 0;
         }
 
-        long totalProducts = productRepository.count();
+        long totalProducts = productCatalog.count();
         int totalPages = totalProducts == 0 ? 0 : (int) Math.ceil((double) totalProducts / pageSize);
 
         if (totalPages > 0 && pageNumber >= totalPages) {
@@ -93,17 +174,13 @@ public class ProductController {
         }
 
         int offset = pageNumber * pageSize;
-        List<Product> products = totalProducts == 0 ? List.of() : productRepository.findPage(offset, pageSize);
-
-        long pageStart = totalProducts == 0 ? 0 : offset + 1L;
-        long pageEnd;
-        if (totalProducts == 0 || products.isEmpty()) {
-            pageEnd = totalProducts == 0 ? 0 : Math.max(pageStart - 1L, 0L);
-        } else {
-            pageEnd = pageStart + products.size() - 1L;
-        }
+        // Rows are read from a cursor while the template renders; the stream, and with it the read
+        // transaction, is closed on this thread when the request completes, even if rendering failed
+        Stream<Product> products = totalProducts == 0 ? Stream.empty() : productCatalog.streamPage(offset, pageSize);
+        RequestContextHolder.currentRequestAttributes()
+                .registerDestructionCallback(PRODUCT_STREAM_ATTRIBUTE, products::close, RequestAttributes.SCOPE_REQUEST);
 
-        model.addAttribute("products", products);
+        model.addAttribute("products", new PageRows(products.iterator(), offset));
         model.addAttribute("productCount", totalProducts);
         model.addAttribute("currentPage", pageNumber);
         model.addAttribute("pageSize", pageSize);
@@ -111,8 +188,6 @@ public class ProductController {
         model.addAttribute("totalProducts", totalProducts);
         model.addAttribute("hasPrevious", pageNumber > 0);
         model.addAttribute("hasNext", totalPages > 0 && pageNumber + 1 < totalPages);
-        model.addAttribute("pageStart", pageStart);
-        model.addAttribute("pageEnd", pageEnd);
 
         if (!model.containsAttribute("errorMessage")) {
             model.addAttribute("errorMessage", null);
@@ -120,26 +195,64 @@ public class ProductController {
         return "fragments/product-rows";
     }
 
+    /**
+     * Rows of a streamed page. They are counted as the template renders them, so the range shown after
+     * the table matches the rows above it even if the catalog changed after it was counted.
+     */
+    public static final class PageRows implements Iterator<Product> {
+
+        private final Iterator<Product> rows;
+        private final int offset;
+        private int rendered;
+
+        PageRows(Iterator<Product> rows, int offset) {
+            this.rows = rows;
+            this.offset = offset;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return rows.hasNext();
+        }
+
+        @Override
+        public Product next() {
+            Product product = rows.next();
+            rendered++;
+            return product;
+        }
+
+        public long getStart() {
+            return rendered == 0 ? 0 : offset + 1L;
+        }
+
+        public long getEnd() {
+            return rendered == 0 ? 0 : offset + (long) rendered;
+        }
+    }
+
     @GetMapping("/products/{id}")
     public String viewProduct(@PathVariable Long id, Model model) {
-        Product product = productRepository.findById(id)
+        Product product = productCatalog.findById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found"));
 
         logger.info("Viewing product detail for id={}", id);
 
         model.addAttribute("product", product);
-        model.addAttribute("productCount", productRepository.count());
+        model.addAttribute("productCount", productCatalog.count());
         return "product-detail";
     }
 
     @PostMapping("/products/sync")
-    public String syncProducts(Model model) {
+    public String syncProducts(HttpServletResponse response, Model model) {
         logger.info("Manual product sync triggered via HTMX");
         try {
-            productSyncService.forceSyncProducts();
-            long count = productRepository.count();
+            // The sync runs in the background; the request only reports which runs cover the stores
+            Map<String, String> runIds = storeSyncScheduler.syncAllNow();
+            response.setStatus(HttpServletResponse.SC_ACCEPTED);
             model.addAttribute("success", true);
-            model.addAttribute("message", "Products synced successfully! Total products: " + count);
+            model.addAttribute("runIds", runIds);
+            model.addAttribute("message", "Sync started for " + runIds.size() + " store(s). Run ids: " + runIds);
         } catch (Exception e) {
             logger.error("Error during manual sync: {}", e.getMessage(), e);
             model.addAttribute("success", false);
@@ -157,9 +270,11 @@ public class ProductController {
         logger.info("Adding new product: {}", title);
         
         try {
-            ProductVariant variant = new ProductVariant(null, title, price, null, true);
-            Product product = new Product(null, title, handle, price, productType, List.of(variant));
+            long priceMinorUnits = MinorUnits.fromDecimal(price, MinorUnits.DEFAULT_CURRENCY);
+            ProductVariant variant = new ProductVariant(null, title, priceMinorUnits, null, true);
+            Product product = new Product(null, title, handle, priceMinorUnits, productType, List.of(variant));
             productRepository.save(product);
+            productChanged();
             model.addAttribute("errorMessage", null);
             return renderProductPage(0, DEFAULT_PAGE_SIZE, model);
 
@@ -211,10 +326,11 @@ public class ProductController {
         product.setShopifyProductId(shopifyProductId)
                 .setTitle(title.trim())
                 .setHandle(handle.trim())
-                .setPrice(price)
+                .setPriceMinorUnits(MinorUnits.fromDecimal(price, product.getCurrency()))
                 .setProductType(productType != null && !productType.isBlank() ? productType.trim() : null);
 
         productRepository.save(product);
+        productChanged();
 
         redirectAttributes.addFlashAttribute("updateSuccess", true);
         return "redirect:/products/" + id;
@@ -228,17 +344,17 @@ public class ProductController {
                                 @RequestHeader(value = "HX-Request", required = false) Boolean isHxRequest,
                                 Model model,
                                 RedirectAttributes redirectAttributes) {
-        Product product = productRepository.findById(id)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found"));
-
-        productRepository.deleteById(id);
-        logger.info("Deleted product id={} (title={})", id, product.getTitle());
+        if (!productRepository.softDeleteById(id)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found");
+        }
+        logger.info("Deleted product id={}", id);
+        productChanged();
 
         boolean hxRequest = Boolean.TRUE.equals(isHxRequest);
 
         if (hxRequest) {
             if (query != null) {
-                return searchProducts(query, model);
+                return renderSearchResults(query, productSearchService.search(query), model);
             }
             return renderProductPage(page, size, model);
         }
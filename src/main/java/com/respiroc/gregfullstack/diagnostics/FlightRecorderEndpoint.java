@@ -0,0 +1,152 @@
+package com.respiroc.gregfullstack.diagnostics;
+
+import com.respiroc.gregfullstack.config.FlightRecorderProperties;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.endpoint.Access;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Controls a Flight Recorder recording at {@code /actuator/jfr}: {@code POST} starts one (optionally
+ * with {@code settings}, {@code default} or {@code profile}), {@code POST /actuator/jfr/dump}
+ * writes a snapshot to {@code diagnostics.jfr.dump-directory} and downloads it while the recording keeps
+ * running, and {@code DELETE} stops it and writes the final file there. The custom sync, repository and
+ * render events are included.
+ *
+ * <p>Read-only unless {@code management.endpoint.jfr.access=unrestricted}; only {@code GET} (the status)
+ * is allowed then, since every other operation writes or deletes files. Only the newest
+ * {@code diagnostics.jfr.max-files} recordings are kept on disk.
+ */
+@Component
+@Endpoint(id = "jfr", defaultAccess = Access.READ_ONLY)
+public class FlightRecorderEndpoint {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlightRecorderEndpoint.class);
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final Set<String> SETTINGS = Set.of("default", "profile");
+
+    private final FlightRecorderProperties properties;
+    private Recording recording;
+
+    public FlightRecorderEndpoint(FlightRecorderProperties properties) {
+        this.properties = properties;
+    }
+
+    @ReadOperation
+    public synchronized Map<String, Object> status() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("recording", recording != null);
+        if (recording != null) {
+            result.put("name", recording.getName());
+            result.put("startTime", recording.getStartTime());
+            result.put("duration", recording.getDuration());
+            result.put("maxAge", recording.getMaxAge());
+            result.put("maxSizeBytes", recording.getMaxSize());
+            result.put("sizeBytes", recording.getSize());
+        }
+        return result;
+    }
+
+    @WriteOperation
+    public synchronized Map<String, Object> start(@Nullable String settings) throws IOException, ParseException {
+        if (recording == null) {
+            String name = settings != null ? settings : properties.settings();
+            if (!SETTINGS.contains(name)) {
+                throw new InvalidEndpointRequestException("Unknown JFR settings '" + name + "'",
+                        "settings must be one of " + SETTINGS);
+            }
+            Configuration configuration = Configuration.getConfiguration(name);
+            Recording newRecording = new Recording(configuration);
+            newRecording.setName("greg-fullstack-" + LocalDateTime.now().format(FILE_TIMESTAMP));
+            newRecording.setToDisk(true);
+            newRecording.setMaxAge(properties.maxAge());
+            newRecording.setMaxSize(properties.maxSize().toBytes());
+            newRecording.enable(SyncPhaseEvent.class);
+            newRecording.enable(RepositoryCallEvent.class);
+            newRecording.enable(RenderEvent.class);
+            newRecording.start();
+            recording = newRecording;
+            logger.info("Started JFR recording {} with settings {}", recording.getName(), configuration.getName());
+        }
+        return status();
+    }
+
+    @WriteOperation
+    public synchronized Resource dump(@Selector String name) throws IOException {
+        if (recording == null || !"dump".equals(name)) {
+            return null;
+        }
+        Path file = dumpFile(recording.getName() + "-snapshot-" + LocalDateTime.now().format(FILE_TIMESTAMP));
+        recording.dump(file);
+        deleteOldDumps();
+        return new FileSystemResource(file);
+    }
+
+    @DeleteOperation
+    public synchronized Map<String, Object> stop() throws IOException {
+        if (recording == null) {
+            return Map.of("recording", false);
+        }
+        try {
+            recording.stop();
+            Path file = dumpFile(recording.getName());
+            recording.dump(file);
+            deleteOldDumps();
+            logger.info("Stopped JFR recording {}; written to {}", recording.getName(), file);
+            return Map.of("recording", false, "file", file.toAbsolutePath().toString());
+        } finally {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    @PreDestroy
+    public void stopOnShutdown() throws IOException {
+        stop();
+    }
+
+    private Path dumpFile(String name) throws IOException {
+        Files.createDirectories(properties.dumpDirectory());
+        return properties.dumpDirectory().resolve(name + ".jfr");
+    }
+
+    /** Keeps the newest {@code max-files} recordings; each is bounded by {@code max-size}. */
+    private void deleteOldDumps() throws IOException {
+        List<Path> dumps;
+        try (Stream<Path> files = Files.list(properties.dumpDirectory())) {
+            dumps = files
+                    .filter(file -> file.getFileName().toString().endsWith(".jfr"))
+                    .sorted(Comparator.comparingLong((Path file) -> file.toFile().lastModified()).reversed())
+                    .toList();
+        }
+        for (Path old : dumps.subList(Math.min(Math.max(properties.maxFiles(), 1), dumps.size()), dumps.size())) {
+            Files.deleteIfExists(old);
+            logger.info("Deleted old JFR recording {}", old);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.respiroc.gregfullstack.diagnostics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.Supplier;
+
+/**
+ * Wraps connections of the target {@link DataSource} in JDK proxies that time every statement
+ * execution, count affected or fetched rows and report them to {@link SqlDiagnostics}. Query time is
+ * measured until the result set is closed, so it includes fetching the rows.
+ */
+public class InstrumentedDataSource extends DelegatingDataSource {
+
+    private final Supplier<SqlDiagnostics> diagnostics;
+
+    public InstrumentedDataSource(DataSource target, Supplier<SqlDiagnostics> diagnostics) {
+        super(target);
+        this.diagnostics = diagnostics;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return instrument(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return instrument(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    private Connection instrument(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new ConnectionHandler(connection, diagnostics.get()));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private record ConnectionHandler(Connection target, SqlDiagnostics diagnostics) implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = InstrumentedDataSource.invoke(target, method, args);
+            return switch (method.getName()) {
+                case "prepareStatement" -> statementProxy(PreparedStatement.class, (Statement) result, (String) args[0]);
+                case "prepareCall" -> statementProxy(CallableStatement.class, (Statement) result, (String) args[0]);
+                case "createStatement" -> statementProxy(Statement.class, (Statement) result, null);
+                default -> result;
+            };
+        }
+
+        private Object statementProxy(Class<? extends Statement> type, Statement statement, String sql) {
+            return Proxy.newProxyInstance(
+                    InstrumentedDataSource.class.getClassLoader(),
+                    new Class<?>[]{type},
+                    new StatementHandler(statement, sql, diagnostics));
+        }
+    }
+
+    private static final class StatementHandler implements InvocationHandler {
+
+        private final Statement target;
+        private final String preparedSql;
+        private final SqlDiagnostics diagnostics;
+
+        StatementHandler(Statement target, String preparedSql, SqlDiagnostics diagnostics) {
+            this.target = target;
+            this.preparedSql = preparedSql;
+            this.diagnostics = diagnostics;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (!name.startsWith("execute")) {
+                return InstrumentedDataSource.invoke(target, method, args);
+            }
+
+            String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : preparedSql;
+            diagnostics.beforeStatement();
+            long start = System.nanoTime();
+            Object result = InstrumentedDataSource.invoke(target, method, args);
+
+            if (result instanceof ResultSet resultSet) {
+                return Proxy.newProxyInstance(
+                        InstrumentedDataSource.class.getClassLoader(),
+                        new Class<?>[]{ResultSet.class},
+                        new ResultSetHandler(resultSet, sql, start, diagnostics));
+            }
+
+            long rows = switch (result) {
+                case Integer count -> Math.max(count, 0);
+                case Long count -> Math.max(count, 0);
+                case int[] counts -> sumPositive(counts);
+                case long[] counts -> sumPositive(counts);
+                case null, default -> 0;
+            };
+            diagnostics.recordStatement(sql != null ? sql : "<batch>", System.nanoTime() - start, rows);
+            return result;
+        }
+
+        private static long sumPositive(int[] counts) {
+            long total = 0;
+            for (int count : counts) {
+                total += Math.max(count, 0);
+            }
+            return total;
+        }
+
+        private static long sumPositive(long[] counts) {
+            long total = 0;
+            for (long count : counts) {
+                total += Math.max(count, 0);
+            }
+            return total;
+        }
+    }
+
+    private static final class ResultSetHandler implements InvocationHandler {
+
+        private final ResultSet target;
+        private final String sql;
+        private final long start;
+        private final SqlDiagnostics diagnostics;
+        private long rows;
+        private boolean recorded;
+
+        ResultSetHandler(ResultSet target, String sql, long start, SqlDiagnostics diagnostics) {
+            this.target = target;
+            this.sql = sql;
+            this.start = start;
+            this.diagnostics = diagnostics;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = InstrumentedDataSource.invoke(target, method, args);
+            switch (method.getName()) {
+                case "next" -> {
+                    if (Boolean.TRUE.equals(result)) {
+                        rows++;
+                    }
+                }
+                case "close" -> {
+                    if (!recorded) {
+                        recorded = true;
+                        diagnostics.recordStatement(sql, System.nanoTime() - start, rows);
+                    }
+                }
+                default -> {
+                }
+            }
+            return result;
+        }
+    }
+}
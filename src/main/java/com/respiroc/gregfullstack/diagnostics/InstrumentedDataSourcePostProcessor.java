@@ -0,0 +1,28 @@
+package com.respiroc.gregfullstack.diagnostics;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+@Component
+public class InstrumentedDataSourcePostProcessor implements BeanPostProcessor {
+
+    private final ObjectProvider<SqlDiagnostics> diagnostics;
+    private final boolean enabled;
+
+    public InstrumentedDataSourcePostProcessor(ObjectProvider<SqlDiagnostics> diagnostics, Environment environment) {
+        this.diagnostics = diagnostics;
+        this.enabled = environment.getProperty("sql.diagnostics.enabled", Boolean.class, true);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (enabled && bean instanceof DataSource dataSource && !(bean instanceof InstrumentedDataSource)) {
+            return new InstrumentedDataSource(dataSource, diagnostics::getObject);
+        }
+        return bean;
+    }
+}
@@ -0,0 +1,24 @@
+package com.respiroc.gregfullstack.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** A controller invocation including the rendering of its view. */
+@Name("com.respiroc.gregfullstack.Render")
+@Label("Controller Render")
+@Category({"Greg Fullstack", "Web"})
+@StackTrace(false)
+public class RenderEvent extends Event {
+
+    @Label("Handler")
+    public String handler;
+
+    @Label("View")
+    public String view;
+
+    @Label("Status")
+    public int status;
+}
@@ -0,0 +1,60 @@
+package com.respiroc.gregfullstack.diagnostics;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Emits a {@link RenderEvent} per controller invocation. The event ends in {@code afterCompletion},
+ * so its duration covers the handler and the Thymeleaf rendering of the returned view.
+ */
+@Configuration(proxyBeanMethods = false)
+public class RenderEventInterceptor implements HandlerInterceptor, WebMvcConfigurer {
+
+    private static final String EVENT_ATTRIBUTE = RenderEventInterceptor.class.getName() + ".event";
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(this).excludePathPatterns("/actuator/**");
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod) {
+            RenderEvent event = new RenderEvent();
+            if (event.isEnabled()) {
+                event.begin();
+                request.setAttribute(EVENT_ATTRIBUTE, event);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler, ModelAndView modelAndView) {
+        if (modelAndView != null && request.getAttribute(EVENT_ATTRIBUTE) instanceof RenderEvent event) {
+            event.view = modelAndView.getViewName();
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (!(request.getAttribute(EVENT_ATTRIBUTE) instanceof RenderEvent event)) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.handler = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE) instanceof String pattern
+                    ? request.getMethod() + " " + pattern
+                    : ((HandlerMethod) handler).getShortLogMessage();
+            event.status = response.getStatus();
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.respiroc.gregfullstack.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.respiroc.gregfullstack.RepositoryCall")
+@Label("Repository Call")
+@Category({"Greg Fullstack", "Database"})
+@StackTrace(false)
+public class RepositoryCallEvent extends Event {
+
+    @Label("Method")
+    public String method;
+
+    @Label("Rows")
+    @Description("Rows returned or affected, derived from the result; -1 when the result has no row count")
+    public long rows;
+
+    @Label("Failed")
+    public boolean failed;
+}
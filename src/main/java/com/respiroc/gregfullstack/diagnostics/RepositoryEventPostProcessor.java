@@ -0,0 +1,68 @@
+package com.respiroc.gregfullstack.diagnostics;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.autoproxy.AbstractBeanFactoryAwareAdvisingPostProcessor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.stereotype.Component;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.BaseStream;
+
+/**
+ * Emits a {@link RepositoryCallEvent} for every public method of a {@link Repository} bean. When no
+ * recording has the event enabled the interceptor only checks {@code isEnabled()} and proceeds.
+ */
+@Component
+public class RepositoryEventPostProcessor extends AbstractBeanFactoryAwareAdvisingPostProcessor {
+
+    public RepositoryEventPostProcessor() {
+        this.advisor = new DefaultPointcutAdvisor(new AnnotationMatchingPointcut(Repository.class, true), new Interceptor());
+        setBeforeExistingAdvisors(true);
+    }
+
+    private static final class Interceptor implements MethodInterceptor {
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            RepositoryCallEvent event = new RepositoryCallEvent();
+            if (!event.isEnabled()) {
+                return invocation.proceed();
+            }
+
+            event.begin();
+            Object result = null;
+            boolean failed = true;
+            try {
+                result = invocation.proceed();
+                failed = false;
+                return result;
+            } finally {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.method = invocation.getMethod().getDeclaringClass().getSimpleName() + "." + invocation.getMethod().getName();
+                    event.rows = failed ? -1 : rows(result);
+                    event.failed = failed;
+                    event.commit();
+                }
+            }
+        }
+
+        private static long rows(Object result) {
+            return switch (result) {
+                case Collection<?> collection -> collection.size();
+                case Map<?, ?> map -> map.size();
+                case Optional<?> optional -> optional.isPresent() ? 1 : 0;
+                case Integer affected -> affected;
+                case Boolean affected -> affected ? 1 : 0;
+                case BaseStream<?, ?> ignored -> -1;
+                case null -> -1;
+                default -> 1;
+            };
+        }
+    }
+}
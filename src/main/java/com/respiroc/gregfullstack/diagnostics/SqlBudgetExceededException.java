@@ -0,0 +1,8 @@
+package com.respiroc.gregfullstack.diagnostics;
+
+public class SqlBudgetExceededException extends IllegalStateException {
+
+    public SqlBudgetExceededException(String message) {
+        super(message);
+    }
+}
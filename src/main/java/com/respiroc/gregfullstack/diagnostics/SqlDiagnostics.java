@@ -0,0 +1,250 @@
+package com.respiroc.gregfullstack.diagnostics;
+
+import com.respiroc.gregfullstack.config.SqlDiagnosticsProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Collects statement counts, row counts and timings reported by {@link InstrumentedDataSource}.
+ * Statements are aggregated by fingerprint (the SQL with literals replaced by {@code ?}), so no bind
+ * values are ever kept or logged. Work wrapped in a {@link SqlScope} is additionally checked for
+ * repeated statements (N+1 patterns) and against its query budget.
+ */
+@Component
+public class SqlDiagnostics {
+
+    private static final Logger logger = LoggerFactory.getLogger(SqlDiagnostics.class);
+
+    private static final int MAX_CACHED_FINGERPRINTS = 1_000;
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.$])-?\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+
+    private final SqlDiagnosticsProperties properties;
+    private final ThreadLocal<SqlScope> currentScope = new ThreadLocal<>();
+    private final Map<String, String> fingerprintCache = new ConcurrentHashMap<>();
+    private final Map<String, StatementStats> statements = new ConcurrentHashMap<>();
+    private final Map<String, ScopeStats> scopes = new ConcurrentHashMap<>();
+
+    public SqlDiagnostics(SqlDiagnosticsProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Starts a scope on the current thread. Scopes nest: statements are attributed to the innermost
+     * one only, so a manual sync triggered by a request is budgeted as a sync, not as part of the request.
+     */
+    public SqlScope open(String kind, String name) {
+        SqlScope scope = new SqlScope(this, kind, name, currentScope.get());
+        currentScope.set(scope);
+        return scope;
+    }
+
+    /**
+     * Makes {@code scope} the current scope of this thread until the returned attachment is closed, so
+     * work spread over several threads (the stages of a sync run) is counted and budgeted as one unit.
+     * The scope is still recorded once, when its owner closes it.
+     */
+    public SqlScope.Attachment attach(SqlScope scope) {
+        SqlScope previous = currentScope.get();
+        currentScope.set(scope);
+        return () -> {
+            if (previous != null) {
+                currentScope.set(previous);
+            } else {
+                currentScope.remove();
+            }
+        };
+    }
+
+    public SqlScope current() {
+        return currentScope.get();
+    }
+
+    void close(SqlScope scope) {
+        if (currentScope.get() != scope) {
+            return;
+        }
+        if (scope.parent() != null) {
+            currentScope.set(scope.parent());
+        } else {
+            currentScope.remove();
+        }
+
+        ScopeStats stats = scopes.computeIfAbsent(scope.kind() + " " + scope.name(), key -> new ScopeStats());
+        stats.record(scope);
+
+        // Only reported here: by now an HTTP response may already be committed. Enforcement happens
+        // in beforeStatement, while the work is still running.
+        int budget = budgetFor(scope.kind());
+        if (scope.budgetExceeded() || (budget > 0 && scope.queries() > budget)) {
+            stats.budgetViolations.increment();
+            logger.warn("SQL budget exceeded for {} {}: {} queries (budget {})",
+                    scope.kind(), scope.name(), scope.queries(), budget);
+        }
+    }
+
+    /**
+     * Called before a statement executes. With {@code fail-on-budget-exceeded}, a statement that would
+     * take the current scope over its budget is refused, so the failure surfaces in the code issuing
+     * it rather than after a response has been sent.
+     *
+     * @throws SqlBudgetExceededException if the scope has already used its budget
+     */
+    void beforeStatement() {
+        SqlScope scope = currentScope.get();
+        if (scope == null || !properties.failOnBudgetExceeded()) {
+            return;
+        }
+        int budget = budgetFor(scope.kind());
+        if (budget > 0 && scope.queries() >= budget) {
+            scope.markBudgetExceeded();
+            throw new SqlBudgetExceededException(String.format("SQL budget exceeded for %s %s: more than %d queries",
+                    scope.kind(), scope.name(), budget));
+        }
+    }
+
+    void recordStatement(String sql, long elapsedNanos, long rows) {
+        String fingerprint = fingerprintCache.get(sql);
+        if (fingerprint == null) {
+            fingerprint = fingerprint(sql);
+            if (fingerprintCache.size() < MAX_CACHED_FINGERPRINTS) {
+                fingerprintCache.put(sql, fingerprint);
+            }
+        }
+        StatementStats stats = statements.computeIfAbsent(fingerprint, key -> new StatementStats());
+        stats.record(elapsedNanos, rows);
+
+        if (elapsedNanos >= properties.slowQueryThreshold().toNanos()) {
+            stats.slowExecutions.increment();
+            logger.warn("Slow SQL ({} ms, {} rows): {}", TimeUnit.NANOSECONDS.toMillis(elapsedNanos), rows, fingerprint);
+        }
+
+        SqlScope scope = currentScope.get();
+        if (scope != null) {
+            int executions = scope.record(fingerprint, elapsedNanos, rows);
+            if (executions == properties.repeatedQueryThreshold()) {
+                stats.repeatedInScope.increment();
+                logger.warn("Possible N+1 in {} {}: statement executed {} times: {}",
+                        scope.kind(), scope.name(), executions, fingerprint);
+            }
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+
+        Map<String, Object> scopeSummary = new LinkedHashMap<>();
+        scopes.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> scopeSummary.put(entry.getKey(), entry.getValue().toMap()));
+        result.put("scopes", scopeSummary);
+
+        List<Map<String, Object>> statementSummary = statements.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, StatementStats> entry) -> entry.getValue().totalNanos.sum()).reversed())
+                .map(entry -> {
+                    Map<String, Object> values = new LinkedHashMap<>();
+                    values.put("fingerprint", entry.getKey());
+                    values.putAll(entry.getValue().toMap());
+                    return values;
+                })
+                .toList();
+        result.put("statements", statementSummary);
+        return result;
+    }
+
+    public void reset() {
+        statements.clear();
+        scopes.clear();
+    }
+
+    static String fingerprint(String sql) {
+        String normalized = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        normalized = STRING_LITERAL.matcher(normalized).replaceAll("?");
+        normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+        return IN_LIST.matcher(normalized).replaceAll("(?)");
+    }
+
+    private int budgetFor(String kind) {
+        return switch (kind) {
+            case "http" -> properties.httpQueryBudget();
+            case "sync" -> properties.syncQueryBudget();
+            default -> 0;
+        };
+    }
+
+    private static final class StatementStats {
+        private final LongAdder executions = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder slowExecutions = new LongAdder();
+        private final LongAdder repeatedInScope = new LongAdder();
+
+        void record(long elapsedNanos, long rowCount) {
+            executions.increment();
+            rows.add(rowCount);
+            totalNanos.add(elapsedNanos);
+            maxNanos.accumulate(elapsedNanos);
+        }
+
+        Map<String, Object> toMap() {
+            long count = executions.sum();
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("executions", count);
+            values.put("rows", rows.sum());
+            values.put("totalMs", toMillis(totalNanos.sum()));
+            values.put("meanMs", count == 0 ? 0.0 : toMillis(totalNanos.sum() / count));
+            values.put("maxMs", toMillis(maxNanos.get()));
+            values.put("slowExecutions", slowExecutions.sum());
+            values.put("nPlusOneDetections", repeatedInScope.sum());
+            return values;
+        }
+    }
+
+    private static final class ScopeStats {
+        private final LongAdder runs = new LongAdder();
+        private final LongAdder queries = new LongAdder();
+        private final LongAccumulator maxQueries = new LongAccumulator(Math::max, 0);
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder budgetViolations = new LongAdder();
+
+        void record(SqlScope scope) {
+            runs.increment();
+            queries.add(scope.queries());
+            maxQueries.accumulate(scope.queries());
+            rows.add(scope.rows());
+            totalNanos.add(scope.nanos());
+        }
+
+        Map<String, Object> toMap() {
+            long count = runs.sum();
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("runs", count);
+            values.put("queries", queries.sum());
+            values.put("meanQueries", count == 0 ? 0.0 : (double) queries.sum() / count);
+            values.put("maxQueries", maxQueries.get());
+            values.put("rows", rows.sum());
+            values.put("sqlMs", toMillis(totalNanos.sum()));
+            values.put("budgetViolations", budgetViolations.sum());
+            return values;
+        }
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,30 @@
+package com.respiroc.gregfullstack.diagnostics;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/** Exposes the SQL aggregates at {@code /actuator/sql}; {@code DELETE} resets them. */
+@Component
+@Endpoint(id = "sql")
+public class SqlDiagnosticsEndpoint {
+
+    private final SqlDiagnostics diagnostics;
+
+    public SqlDiagnosticsEndpoint(SqlDiagnostics diagnostics) {
+        this.diagnostics = diagnostics;
+    }
+
+    @ReadOperation
+    public Map<String, Object> sql() {
+        return diagnostics.snapshot();
+    }
+
+    @DeleteOperation
+    public void reset() {
+        diagnostics.reset();
+    }
+}
@@ -0,0 +1,42 @@
+package com.respiroc.gregfullstack.diagnostics;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Opens an HTTP {@link SqlScope} around each request. Scopes are named after the matched request
+ * mapping (e.g. {@code GET /products/{id}}) so the aggregates do not grow with the number of ids.
+ */
+@Component
+public class SqlDiagnosticsFilter extends OncePerRequestFilter {
+
+    private final SqlDiagnostics diagnostics;
+
+    public SqlDiagnosticsFilter(SqlDiagnostics diagnostics) {
+        this.diagnostics = diagnostics;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        try (SqlScope scope = diagnostics.open("http", request.getMethod() + " " + request.getRequestURI())) {
+            filterChain.doFilter(request, response);
+            if (request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE) instanceof String pattern) {
+                scope.rename(request.getMethod() + " " + pattern);
+            }
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        return path.startsWith("/actuator") || path.equals("/htmx.min.js");
+    }
+}
@@ -0,0 +1,84 @@
+package com.respiroc.gregfullstack.diagnostics;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * SQL activity of one unit of work (an HTTP request or a sync run). Obtained from
+ * {@link SqlDiagnostics#open} on the thread that owns the work and closed there with try-with-resources;
+ * other threads doing part of the work report into it through {@link SqlDiagnostics#attach}.
+ */
+public final class SqlScope implements AutoCloseable {
+
+    private final SqlDiagnostics diagnostics;
+    private final String kind;
+    private final SqlScope parent;
+    private String name;
+    private int queries;
+    private long rows;
+    private long nanos;
+    private boolean budgetExceeded;
+    private final Map<String, Integer> executionsByFingerprint = new HashMap<>();
+
+    SqlScope(SqlDiagnostics diagnostics, String kind, String name, SqlScope parent) {
+        this.diagnostics = diagnostics;
+        this.kind = kind;
+        this.name = name;
+        this.parent = parent;
+    }
+
+    public String kind() {
+        return kind;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /** Renames the scope, e.g. once the matched request mapping is known. */
+    public void rename(String name) {
+        this.name = name;
+    }
+
+    SqlScope parent() {
+        return parent;
+    }
+
+    public synchronized int queries() {
+        return queries;
+    }
+
+    public synchronized long rows() {
+        return rows;
+    }
+
+    public synchronized long nanos() {
+        return nanos;
+    }
+
+    synchronized boolean budgetExceeded() {
+        return budgetExceeded;
+    }
+
+    synchronized void markBudgetExceeded() {
+        budgetExceeded = true;
+    }
+
+    synchronized int record(String fingerprint, long elapsedNanos, long rowCount) {
+        queries++;
+        rows += rowCount;
+        nanos += elapsedNanos;
+        return executionsByFingerprint.merge(fingerprint, 1, Integer::sum);
+    }
+
+    @Override
+    public void close() {
+        diagnostics.close(this);
+    }
+
+    /** A thread's attachment to a scope it does not own; closing it only detaches the thread. */
+    public interface Attachment extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,29 @@
+package com.respiroc.gregfullstack.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** One stage batch of a store's product sync, or the whole sync when {@code phase} is {@code sync}. */
+@Name("com.respiroc.gregfullstack.SyncPhase")
+@Label("Sync Phase")
+@Category({"Greg Fullstack", "Sync"})
+@StackTrace(false)
+public class SyncPhaseEvent extends Event {
+
+    @Label("Phase")
+    public String phase;
+
+    @Label("Store")
+    public String store;
+
+    @Label("Generation")
+    @Description("Sync generation the phase belongs to, 0 before it has been started")
+    public long generation;
+
+    @Label("Products")
+    public int products;
+}
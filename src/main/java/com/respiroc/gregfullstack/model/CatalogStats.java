@@ -0,0 +1,25 @@
+package com.respiroc.gregfullstack.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/** Home page statistics as of the last refresh of the catalog statistics views. */
+public record CatalogStats(long totalProducts,
+                           BigDecimal minPrice,
+                           BigDecimal avgPrice,
+                           BigDecimal maxPrice,
+                           long availableVariants,
+                           long soldOutVariants,
+                           LocalDateTime refreshedAt,
+                           List<TypeCount> productTypes,
+                           List<RecentProduct> recentlyUpdated) {
+
+    /** Products of one type; {@code productType} is empty for products without a type. */
+    public record TypeCount(String productType, long products) {
+    }
+
+    public record RecentProduct(Long id, String storeId, String title, BigDecimal price, String productType,
+                                LocalDateTime updatedAt) {
+    }
+}
@@ -0,0 +1,205 @@
+package com.respiroc.gregfullstack.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+
+/**
+ * Prices as a {@code long} count of the currency's minor units (øre, cents). Parsing, comparing and
+ * storing such a price allocates nothing; a {@link BigDecimal} is only produced where a price is
+ * rendered or handed to the database.
+ */
+public final class MinorUnits {
+
+    /** Currency of every store so far; the Shopify feeds do not state one. */
+    public static final Currency DEFAULT_CURRENCY = Currency.getInstance("NOK");
+
+    /** Longest text {@link #write} produces: sign, 19 digits, a decimal point and a leading zero. */
+    public static final int MAX_CHARS = 22;
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L
+    };
+    private static final Currency[] BY_NUMERIC_CODE = new Currency[1000];
+
+    static {
+        for (Currency currency : Currency.getAvailableCurrencies()) {
+            int code = currency.getNumericCode();
+            if (code > 0 && code < BY_NUMERIC_CODE.length && BY_NUMERIC_CODE[code] == null) {
+                BY_NUMERIC_CODE[code] = currency;
+            }
+        }
+    }
+
+    private MinorUnits() {
+    }
+
+    /** Number of minor-unit digits of the currency, e.g. 2 for NOK and 0 for JPY. */
+    public static int scale(Currency currency) {
+        return Math.max(currency.getDefaultFractionDigits(), 0);
+    }
+
+    /**
+     * Parses a plain decimal such as {@code 499.00} into minor units with {@code scale} fraction digits.
+     * Fraction digits beyond the scale must be zero; exponents are not accepted.
+     *
+     * @throws NumberFormatException if the text is not such a decimal or does not fit in a long
+     */
+    public static long parse(CharSequence text, int scale) {
+        int length = text.length();
+        int index = 0;
+        boolean negative = length > 0 && text.charAt(0) == '-';
+        if (negative) {
+            index++;
+        }
+
+        long value = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; index < length; index++) {
+            char c = text.charAt(index);
+            if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else if (c >= '0' && c <= '9') {
+                digits++;
+                if (fractionDigits >= scale) {
+                    if (c != '0') {
+                        throw new NumberFormatException("More than " + scale + " fraction digits: " + text);
+                    }
+                    continue;
+                }
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+                value = accumulate(value, c, text);
+            } else {
+                throw new NumberFormatException("Not a plain decimal: " + text);
+            }
+        }
+        return finish(value, digits, fractionDigits, scale, negative, text);
+    }
+
+    /** {@link #parse(CharSequence, int)} over a slice of a character buffer, e.g. a JSON parser's token text. */
+    public static long parse(char[] chars, int offset, int length, int scale) {
+        int end = offset + length;
+        int index = offset;
+        boolean negative = length > 0 && chars[offset] == '-';
+        if (negative) {
+            index++;
+        }
+
+        long value = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; index < end; index++) {
+            char c = chars[index];
+            if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else if (c >= '0' && c <= '9') {
+                digits++;
+                if (fractionDigits >= scale) {
+                    if (c != '0') {
+                        throw new NumberFormatException("More than " + scale + " fraction digits: "
+                                + new String(chars, offset, length));
+                    }
+                    continue;
+                }
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+                value = accumulate(value, c, null);
+            } else {
+                throw new NumberFormatException("Not a plain decimal: " + new String(chars, offset, length));
+            }
+        }
+        return finish(value, digits, fractionDigits, scale, negative, null);
+    }
+
+    /**
+     * Converts minor units between scales, e.g. from a price parsed at scale 4 to the currency's scale.
+     *
+     * @throws ArithmeticException if the amount has significant digits below {@code toScale} or overflows
+     */
+    public static long rescale(long value, int fromScale, int toScale) {
+        if (toScale >= fromScale) {
+            return Math.multiplyExact(value, POWERS_OF_TEN[toScale - fromScale]);
+        }
+        long divisor = POWERS_OF_TEN[fromScale - toScale];
+        if (value % divisor != 0) {
+            throw new ArithmeticException("Price " + value + " has more than " + toScale + " fraction digits");
+        }
+        return value / divisor;
+    }
+
+    /** Renders minor units as a decimal with the currency's scale, e.g. 49900 NOK as {@code 499.00}. */
+    public static BigDecimal toDecimal(long minorUnits, Currency currency) {
+        return BigDecimal.valueOf(minorUnits, scale(currency));
+    }
+
+    /**
+     * Converts a decimal entered by a user, rounding half up to the currency's scale.
+     *
+     * @throws ArithmeticException if the amount does not fit in a long
+     */
+    public static long fromDecimal(BigDecimal value, Currency currency) {
+        return value.setScale(scale(currency), RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Writes minor units as a plain decimal into the first characters of {@code buffer}, which must
+     * hold at least {@value #MAX_CHARS} characters, and returns the number of characters written.
+     */
+    public static int write(long minorUnits, int scale, char[] buffer) {
+        if (minorUnits == Long.MIN_VALUE) {
+            throw new IllegalArgumentException("Price out of range: " + minorUnits);
+        }
+        long remaining = Math.abs(minorUnits);
+        int position = MAX_CHARS;
+        for (int i = 0; i < scale; i++) {
+            buffer[--position] = (char) ('0' + remaining % 10);
+            remaining /= 10;
+        }
+        if (scale > 0) {
+            buffer[--position] = '.';
+        }
+        do {
+            buffer[--position] = (char) ('0' + remaining % 10);
+            remaining /= 10;
+        } while (remaining > 0);
+        if (minorUnits < 0) {
+            buffer[--position] = '-';
+        }
+        int length = MAX_CHARS - position;
+        System.arraycopy(buffer, position, buffer, 0, length);
+        return length;
+    }
+
+    /** The currency with an ISO 4217 numeric code, as stored in catalog snapshots. */
+    public static Currency ofNumericCode(int code) {
+        Currency currency = code > 0 && code < BY_NUMERIC_CODE.length ? BY_NUMERIC_CODE[code] : null;
+        if (currency == null) {
+            throw new IllegalArgumentException("Unknown currency code " + code);
+        }
+        return currency;
+    }
+
+    private static long accumulate(long value, char digit, CharSequence text) {
+        int digitValue = digit - '0';
+        if (value > (Long.MAX_VALUE - digitValue) / 10) {
+            throw new NumberFormatException("Price out of range" + (text != null ? ": " + text : ""));
+        }
+        return value * 10 + digitValue;
+    }
+
+    private static long finish(long value, int digits, int fractionDigits, int scale, boolean negative, CharSequence text) {
+        if (digits == 0) {
+            throw new NumberFormatException("No digits in price" + (text != null ? ": " + text : ""));
+        }
+        int missing = scale - Math.max(fractionDigits, 0);
+        if (missing >= POWERS_OF_TEN.length || value > Long.MAX_VALUE / POWERS_OF_TEN[missing]) {
+            throw new NumberFormatException("Price out of range" + (text != null ? ": " + text : ""));
+        }
+        value *= POWERS_OF_TEN[missing];
+        return negative ? -value : value;
+    }
+}
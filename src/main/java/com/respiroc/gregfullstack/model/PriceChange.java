@@ -0,0 +1,13 @@
+package com.respiroc.gregfullstack.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/** One row of the price history; {@code oldPrice} is null for the first price seen for a variant. */
+public record PriceChange(String storeId,
+                          Long shopifyProductId,
+                          Long shopifyVariantId,
+                          LocalDateTime recordedAt,
+                          BigDecimal oldPrice,
+                          BigDecimal newPrice) {
+}
@@ -0,0 +1,16 @@
+package com.respiroc.gregfullstack.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/** A price change ranked by its relative size; {@code productId} and {@code title} are null once the product is gone. */
+public record PriceMover(Long productId,
+                         String title,
+                         String storeId,
+                         Long shopifyProductId,
+                         Long shopifyVariantId,
+                         LocalDateTime recordedAt,
+                         BigDecimal oldPrice,
+                         BigDecimal newPrice,
+                         BigDecimal changeRatio) {
+}
@@ -4,35 +4,42 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Currency;
 import java.util.List;
 
 public class Product {
+    /** Store of products created before stores were configurable, and of products added by hand. */
+    public static final String DEFAULT_STORE_ID = "famme";
+
     private Long id;
+    private String storeId = DEFAULT_STORE_ID;
     private Long shopifyProductId;
     private String title;
     private String handle;
-    private BigDecimal price;
+    private long priceMinorUnits;
+    private Currency currency = MinorUnits.DEFAULT_CURRENCY;
     private String productType;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private Long lastSeenGeneration;
     private List<ProductVariant> variants = new ArrayList<>();
 
     public Product() {}
 
-    public Product(Long shopifyProductId, String title, String handle, BigDecimal price, String productType) {
-        this(shopifyProductId, title, handle, price, productType, Collections.emptyList());
+    public Product(Long shopifyProductId, String title, String handle, long priceMinorUnits, String productType) {
+        this(shopifyProductId, title, handle, priceMinorUnits, productType, Collections.emptyList());
     }
 
     public Product(Long shopifyProductId,
                    String title,
                    String handle,
-                   BigDecimal price,
+                   long priceMinorUnits,
                    String productType,
                    List<ProductVariant> variants) {
         this.shopifyProductId = shopifyProductId;
         this.title = title;
         this.handle = handle;
-        this.price = price;
+        this.priceMinorUnits = priceMinorUnits;
         this.productType = productType;
         if (variants != null) {
             this.variants = new ArrayList<>(variants);
@@ -51,6 +58,15 @@ public class Product {
         return this;
     }
 
+    public String getStoreId() {
+        return storeId;
+    }
+
+    public Product setStoreId(String storeId) {
+        this.storeId = storeId;
+        return this;
+    }
+
     public Long getShopifyProductId() {
         return shopifyProductId;
     }
@@ -78,15 +94,29 @@ public class Product {
         return this;
     }
 
-    public BigDecimal getPrice() {
-        return price;
+    public long getPriceMinorUnits() {
+        return priceMinorUnits;
+    }
+
+    public Product setPriceMinorUnits(long priceMinorUnits) {
+        this.priceMinorUnits = priceMinorUnits;
+        return this;
     }
 
-    public Product setPrice(BigDecimal price) {
-        this.price = price;
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public Product setCurrency(Currency currency) {
+        this.currency = currency;
         return this;
     }
 
+    /** The price in major units, for rendering. */
+    public BigDecimal getPrice() {
+        return MinorUnits.toDecimal(priceMinorUnits, currency);
+    }
+
     public String getProductType() {
         return productType;
     }
@@ -114,6 +144,15 @@ public class Product {
         return this;
     }
 
+    public Long getLastSeenGeneration() {
+        return lastSeenGeneration;
+    }
+
+    public Product setLastSeenGeneration(Long lastSeenGeneration) {
+        this.lastSeenGeneration = lastSeenGeneration;
+        return this;
+    }
+
     public List<ProductVariant> getVariants() {
         return variants;
     }
@@ -127,14 +166,16 @@ public class Product {
     public String toString() {
         return "Product{" +
                 "id=" + id +
+                ", storeId='" + storeId + '\'' +
                 ", shopifyProductId=" + shopifyProductId +
                 ", title='" + title + '\'' +
                 ", handle='" + handle + '\'' +
-                ", price=" + price +
+                ", price=" + getPrice() + " " + currency +
                 ", productType='" + productType + '\'' +
                 ", variantsCount=" + (variants != null ? variants.size() : 0) +
                 ", createdAt=" + createdAt +
                 ", updatedAt=" + updatedAt +
+                ", lastSeenGeneration=" + lastSeenGeneration +
                 '}';
     }
 }
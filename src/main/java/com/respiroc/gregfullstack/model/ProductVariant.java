@@ -1,21 +1,23 @@
 package com.respiroc.gregfullstack.model;
 
 import java.math.BigDecimal;
+import java.util.Currency;
 
 public class ProductVariant {
     private Long shopifyVariantId;
     private String title;
-    private BigDecimal price;
+    private long priceMinorUnits;
+    private Currency currency = MinorUnits.DEFAULT_CURRENCY;
     private String sku;
     private boolean available;
 
     public ProductVariant() {
     }
 
-    public ProductVariant(Long shopifyVariantId, String title, BigDecimal price, String sku, boolean available) {
+    public ProductVariant(Long shopifyVariantId, String title, long priceMinorUnits, String sku, boolean available) {
         this.shopifyVariantId = shopifyVariantId;
         this.title = title;
-        this.price = price;
+        this.priceMinorUnits = priceMinorUnits;
         this.sku = sku;
         this.available = available;
     }
@@ -38,15 +40,29 @@ public class ProductVariant {
         return this;
     }
 
-    public BigDecimal getPrice() {
-        return price;
+    public long getPriceMinorUnits() {
+        return priceMinorUnits;
     }
 
-    public ProductVariant setPrice(BigDecimal price) {
-        this.price = price;
+    public ProductVariant setPriceMinorUnits(long priceMinorUnits) {
+        this.priceMinorUnits = priceMinorUnits;
         return this;
     }
 
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public ProductVariant setCurrency(Currency currency) {
+        this.currency = currency;
+        return this;
+    }
+
+    /** The price in major units, for rendering. */
+    public BigDecimal getPrice() {
+        return MinorUnits.toDecimal(priceMinorUnits, currency);
+    }
+
     public String getSku() {
         return sku;
     }
@@ -0,0 +1,88 @@
+package com.respiroc.gregfullstack.repository;
+
+import com.respiroc.gregfullstack.model.CatalogStats;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Reads and refreshes the catalog statistics materialized views. Reads touch only the small views, so
+ * their cost does not depend on the size of {@code products}.
+ */
+@Repository
+public class CatalogStatsRepository {
+
+    private static final List<String> VIEWS = List.of("catalog_stats", "catalog_type_counts", "catalog_recent_products");
+
+    private final JdbcClient jdbcClient;
+
+    public CatalogStatsRepository(JdbcClient jdbcClient) {
+        this.jdbcClient = jdbcClient;
+    }
+
+    /** Recomputes every view without blocking concurrent readers. */
+    public void refresh() {
+        for (String view : VIEWS) {
+            jdbcClient.sql("REFRESH MATERIALIZED VIEW CONCURRENTLY " + view).update();
+        }
+    }
+
+    public Optional<CatalogStats> find() {
+        String sql = """
+            SELECT total_products, min_price, avg_price, max_price, available_variants, sold_out_variants, refreshed_at
+            FROM catalog_stats
+            WHERE id = 1
+            """;
+
+        List<CatalogStats.TypeCount> productTypes = findTypeCounts();
+        List<CatalogStats.RecentProduct> recentlyUpdated = findRecentlyUpdated();
+        return jdbcClient.sql(sql)
+                .query((rs, rowNum) -> new CatalogStats(
+                        rs.getLong("total_products"),
+                        rs.getBigDecimal("min_price"),
+                        rs.getBigDecimal("avg_price"),
+                        rs.getBigDecimal("max_price"),
+                        rs.getLong("available_variants"),
+                        rs.getLong("sold_out_variants"),
+                        rs.getTimestamp("refreshed_at").toLocalDateTime(),
+                        productTypes,
+                        recentlyUpdated))
+                .optional();
+    }
+
+    public List<CatalogStats.TypeCount> findTypeCounts() {
+        String sql = """
+            SELECT product_type, products
+            FROM catalog_type_counts
+            ORDER BY products DESC, product_type
+            """;
+
+        return jdbcClient.sql(sql)
+                .query((rs, rowNum) -> new CatalogStats.TypeCount(rs.getString("product_type"), rs.getLong("products")))
+                .list();
+    }
+
+    public List<CatalogStats.RecentProduct> findRecentlyUpdated() {
+        String sql = """
+            SELECT id, store_id, title, price, product_type, updated_at
+            FROM catalog_recent_products
+            ORDER BY updated_at DESC, id DESC
+            """;
+
+        return jdbcClient.sql(sql)
+                .query((rs, rowNum) -> {
+                    Timestamp updatedAt = rs.getTimestamp("updated_at");
+                    return new CatalogStats.RecentProduct(
+                            rs.getLong("id"),
+                            rs.getString("store_id"),
+                            rs.getString("title"),
+                            rs.getBigDecimal("price"),
+                            rs.getString("product_type"),
+                            updatedAt != null ? updatedAt.toLocalDateTime() : null);
+                })
+                .list();
+    }
+}
@@ -0,0 +1,139 @@
+package com.respiroc.gregfullstack.repository;
+
+import com.respiroc.gregfullstack.model.PriceChange;
+import com.respiroc.gregfullstack.model.PriceMover;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public class PriceHistoryRepository {
+
+    private final JdbcClient jdbcClient;
+
+    public PriceHistoryRepository(JdbcClient jdbcClient) {
+        this.jdbcClient = jdbcClient;
+    }
+
+    /** Appends all changes with a single statement by unnesting parallel arrays. */
+    public int insertAll(long generation, List<PriceChange> changes) {
+        if (changes.isEmpty()) {
+            return 0;
+        }
+
+        String sql = """
+            INSERT INTO price_history (store_id, shopify_product_id, shopify_variant_id, generation, old_price, new_price)
+            SELECT store_id, product_id, variant_id, ?, old_price, new_price
+            FROM unnest(?::varchar[], ?::bigint[], ?::bigint[], ?::numeric[], ?::numeric[])
+                AS t(store_id, product_id, variant_id, old_price, new_price)
+            """;
+
+        int size = changes.size();
+        String[] storeIds = new String[size];
+        Long[] productIds = new Long[size];
+        Long[] variantIds = new Long[size];
+        String[] oldPrices = new String[size];
+        String[] newPrices = new String[size];
+        for (int i = 0; i < size; i++) {
+            PriceChange change = changes.get(i);
+            storeIds[i] = change.storeId();
+            productIds[i] = change.shopifyProductId();
+            variantIds[i] = change.shopifyVariantId();
+            oldPrices[i] = change.oldPrice() != null ? change.oldPrice().toPlainString() : null;
+            newPrices[i] = change.newPrice().toPlainString();
+        }
+
+        return jdbcClient.sql(sql)
+                .param(generation)
+                .param(storeIds)
+                .param(productIds)
+                .param(variantIds)
+                .param(oldPrices)
+                .param(newPrices)
+                .update();
+    }
+
+    public List<PriceChange> findSeries(String storeId, long shopifyProductId, LocalDateTime since) {
+        String sql = """
+            SELECT store_id, shopify_product_id, shopify_variant_id, recorded_at, old_price, new_price
+            FROM price_history
+            WHERE store_id = ? AND shopify_product_id = ? AND recorded_at >= ?
+            ORDER BY recorded_at, shopify_variant_id
+            """;
+
+        return jdbcClient.sql(sql)
+                .param(storeId)
+                .param(shopifyProductId)
+                .param(Timestamp.valueOf(since))
+                .query(this::mapChange)
+                .list();
+    }
+
+    /**
+     * Largest relative changes since {@code since}. The time predicate prunes to the recent
+     * partitions and their BRIN ranges before ranking, so the cost follows the window, not the table.
+     */
+    public List<PriceMover> findBiggestMovers(LocalDateTime since, int limit) {
+        String sql = """
+            SELECT p.id AS product_id, p.title, m.store_id, m.shopify_product_id, m.shopify_variant_id, m.recorded_at,
+                   m.old_price, m.new_price, m.change_ratio
+            FROM (
+                SELECT store_id, shopify_product_id, shopify_variant_id, recorded_at, old_price, new_price,
+                       (new_price - old_price) / old_price AS change_ratio
+                FROM price_history
+                WHERE recorded_at >= ? AND old_price > 0
+                ORDER BY abs(new_price - old_price) / old_price DESC
+                LIMIT ?
+            ) m
+            LEFT JOIN products p ON p.store_id = m.store_id AND p.shopify_product_id = m.shopify_product_id
+                AND p.deleted_at IS NULL
+            ORDER BY abs(m.change_ratio) DESC
+            """;
+
+        return jdbcClient.sql(sql)
+                .param(Timestamp.valueOf(since))
+                .param(limit)
+                .query(this::mapMover)
+                .list();
+    }
+
+    public void createPartition(LocalDate month) {
+        jdbcClient.sql("SELECT create_price_history_partition(?)")
+                .param(Date.valueOf(month))
+                .query((rs, rowNum) -> rowNum)
+                .list();
+    }
+
+    private PriceChange mapChange(ResultSet rs, int rowNum) throws SQLException {
+        return new PriceChange(
+                rs.getString("store_id"),
+                rs.getLong("shopify_product_id"),
+                rs.getLong("shopify_variant_id"),
+                rs.getTimestamp("recorded_at").toLocalDateTime(),
+                rs.getBigDecimal("old_price"),
+                rs.getBigDecimal("new_price"));
+    }
+
+    private PriceMover mapMover(ResultSet rs, int rowNum) throws SQLException {
+        BigDecimal ratio = rs.getBigDecimal("change_ratio");
+        return new PriceMover(
+                rs.getObject("product_id", Long.class),
+                rs.getString("title"),
+                rs.getString("store_id"),
+                rs.getLong("shopify_product_id"),
+                rs.getLong("shopify_variant_id"),
+                rs.getTimestamp("recorded_at").toLocalDateTime(),
+                rs.getBigDecimal("old_price"),
+                rs.getBigDecimal("new_price"),
+                ratio != null ? ratio.setScale(4, RoundingMode.HALF_UP) : null);
+    }
+}
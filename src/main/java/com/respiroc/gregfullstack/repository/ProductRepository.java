@@ -1,47 +1,68 @@
 package com.respiroc.gregfullstack.repository;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.respiroc.gregfullstack.model.MinorUnits;
 import com.respiroc.gregfullstack.model.Product;
 import com.respiroc.gregfullstack.model.ProductVariant;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.simple.JdbcClient;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import org.postgresql.util.PGobject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.sql.DataSource;
+import java.io.IOException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Currency;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Repository
 public class ProductRepository {
 
     private final JdbcClient jdbcClient;
-    private final ObjectMapper objectMapper;
+    private final JdbcClient cursorClient;
+    private final PlatformTransactionManager transactionManager;
+    private final TransactionTemplate readOnlyTransaction;
 
     private static final Logger logger = LoggerFactory.getLogger(ProductRepository.class);
-    private static final TypeReference<List<ProductVariant>> VARIANT_LIST_TYPE = new TypeReference<>() {};
+    private static final int STREAM_FETCH_SIZE = 100;
 
-    public ProductRepository(JdbcClient jdbcClient, ObjectMapper objectMapper) {
+    public ProductRepository(JdbcClient jdbcClient, DataSource dataSource, PlatformTransactionManager transactionManager) {
         this.jdbcClient = jdbcClient;
-        this.objectMapper = objectMapper;
+
+        JdbcTemplate cursorTemplate = new JdbcTemplate(dataSource);
+        cursorTemplate.setFetchSize(STREAM_FETCH_SIZE);
+        this.cursorClient = JdbcClient.create(cursorTemplate);
+        this.transactionManager = transactionManager;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
     }
 
     public List<Product> findAll() {
         String sql = """
-            SELECT id, shopify_product_id, title, handle, price, product_type, variants, created_at, updated_at
+            SELECT id, store_id, shopify_product_id, title, handle, price_minor_units, product_type, variants, created_at, updated_at, last_seen_generation
             FROM products
+            WHERE deleted_at IS NULL
             ORDER BY created_at DESC
             """;
         
@@ -50,14 +71,35 @@ public class ProductRepository {
                 .list();
     }
 
+    /**
+     * Streams all live products in listing order without collecting them into a list. The rows are read
+     * through a cursor, {@value #STREAM_FETCH_SIZE} at a time, inside a read-only transaction: outside
+     * one, PostgreSQL ignores the fetch size and the driver buffers the whole result set.
+     */
+    public void forEachProduct(Consumer<Product> action) {
+        String sql = """
+            SELECT id, store_id, shopify_product_id, title, handle, price_minor_units, product_type, variants, created_at, updated_at, last_seen_generation
+            FROM products
+            WHERE deleted_at IS NULL
+            ORDER BY created_at DESC
+            """;
+
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<Product> products = cursorClient.sql(sql).query(this::mapProduct).stream()) {
+                products.forEach(action);
+            }
+        });
+    }
+
     public List<Product> findPage(int offset, int limit) {
         if (limit <= 0) {
             return Collections.emptyList();
         }
 
         String sql = """
-            SELECT id, shopify_product_id, title, handle, price, product_type, variants, created_at, updated_at
+            SELECT id, store_id, shopify_product_id, title, handle, price_minor_units, product_type, variants, created_at, updated_at, last_seen_generation
             FROM products
+            WHERE deleted_at IS NULL
             ORDER BY created_at DESC
             LIMIT ? OFFSET ?
             """;
@@ -71,6 +113,43 @@ public class ProductRepository {
                 .list();
     }
 
+    /**
+     * Streams one page through a server-side cursor, fetching {@value #STREAM_FETCH_SIZE} rows at a
+     * time. The cursor lives in a read-only transaction that is bound to the calling thread until the
+     * stream is closed, so callers must close it on that thread, e.g. when the request completes.
+     */
+    public Stream<Product> streamPage(int offset, int limit) {
+        if (limit <= 0) {
+            return Stream.empty();
+        }
+
+        String sql = """
+            SELECT id, store_id, shopify_product_id, title, handle, price_minor_units, product_type, variants, created_at, updated_at, last_seen_generation
+            FROM products
+            WHERE deleted_at IS NULL
+            ORDER BY created_at DESC
+            LIMIT ? OFFSET ?
+            """;
+
+        TransactionStatus transaction;
+        try {
+            transaction = transactionManager.getTransaction(readOnlyTransaction);
+        } catch (CannotCreateTransactionException e) {
+            throw new DataAccessResourceFailureException("Could not open a read transaction for streamPage", e);
+        }
+        try {
+            Stream<Product> products = cursorClient.sql(sql)
+                    .param(limit)
+                    .param(Math.max(offset, 0))
+                    .query(this::mapProduct)
+                    .stream();
+            return products.onClose(() -> transactionManager.commit(transaction));
+        } catch (RuntimeException e) {
+            transactionManager.rollback(transaction);
+            throw e;
+        }
+    }
+
     public List<Product> searchByTitle(String query) {
         if (query == null) {
             return List.of();
@@ -84,9 +163,9 @@ public class ProductRepository {
         String pattern = "%" + escapeForLike(trimmed) + "%";
 
         String sql = """
-            SELECT id, shopify_product_id, title, handle, price, product_type, variants, created_at, updated_at
+            SELECT id, store_id, shopify_product_id, title, handle, price_minor_units, product_type, variants, created_at, updated_at, last_seen_generation
             FROM products
-            WHERE title ILIKE ? ESCAPE '\\'
+            WHERE deleted_at IS NULL AND title ILIKE ? ESCAPE '\\'
             ORDER BY created_at DESC
             """;
 
@@ -98,9 +177,9 @@ public class ProductRepository {
 
     public Optional<Product> findById(Long id) {
         String sql = """
-            SELECT id, shopify_product_id, title, handle, price, product_type, variants, created_at, updated_at
+            SELECT id, store_id, shopify_product_id, title, handle, price_minor_units, product_type, variants, created_at, updated_at, last_seen_generation
             FROM products
-            WHERE id = ?
+            WHERE id = ? AND deleted_at IS NULL
             """;
         
         return jdbcClient.sql(sql)
@@ -109,19 +188,38 @@ public class ProductRepository {
                 .optional();
     }
 
-    public Optional<Product> findByShopifyProductId(Long shopifyProductId) {
+    public Optional<Product> findByShopifyProductId(String storeId, Long shopifyProductId) {
         String sql = """
-            SELECT id, shopify_product_id, title, handle, price, product_type, variants, created_at, updated_at
+            SELECT id, store_id, shopify_product_id, title, handle, price_minor_units, product_type, variants, created_at, updated_at, last_seen_generation
             FROM products
-            WHERE shopify_product_id = ?
+            WHERE store_id = ? AND shopify_product_id = ? AND deleted_at IS NULL
             """;
         
         return jdbcClient.sql(sql)
+                .param(storeId)
                 .param(shopifyProductId)
                 .query(this::mapProduct)
                 .optional();
     }
 
+    public List<Product> findByShopifyProductIds(String storeId, Collection<Long> shopifyProductIds) {
+        if (shopifyProductIds.isEmpty()) {
+            return List.of();
+        }
+
+        String sql = """
+            SELECT id, store_id, shopify_product_id, title, handle, price_minor_units, product_type, variants, created_at, updated_at, last_seen_generation
+            FROM products
+            WHERE store_id = ? AND shopify_product_id = ANY(?) AND deleted_at IS NULL
+            """;
+
+        return jdbcClient.sql(sql)
+                .param(storeId)
+                .param(shopifyProductIds.toArray(Long[]::new))
+                .query(this::mapProduct)
+                .list();
+    }
+
     public Product save(Product product) {
         if (product.getId() == null) {
             return insert(product);
@@ -130,33 +228,47 @@ public class ProductRepository {
         }
     }
 
+    /**
+     * Products added outside a sync count as seen by their store's latest completed sync, so the
+     * UNSEEN_SYNCS retention policy gives them the same grace period as a product that left the feed.
+     * The decimal {@code price} column is computed in SQL from the minor units and the currency's scale,
+     * so writing a product builds no {@code BigDecimal}.
+     */
     private Product insert(Product product) {
         String sql = """
-            INSERT INTO products (shopify_product_id, title, handle, price, product_type, variants, created_at, updated_at)
-            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            INSERT INTO products (store_id, shopify_product_id, title, handle, price, price_minor_units, product_type, variants, created_at, updated_at, last_seen_generation)
+            VALUES (?, ?, ?, ?, round(? / 10::numeric ^ ?, ?), ?, ?, ?, ?, ?, COALESCE(?, (
+                SELECT MAX(generation) FROM sync_runs WHERE store_id = ? AND completed_at IS NOT NULL
+            ), 0))
             """;
         
         KeyHolder keyHolder = new GeneratedKeyHolder();
         LocalDateTime now = LocalDateTime.now();
         
         jdbcClient.sql(sql)
+                .param(product.getStoreId())
                 .param(product.getShopifyProductId())
                 .param(product.getTitle())
                 .param(product.getHandle())
-                .param(product.getPrice())
+                .param(product.getPriceMinorUnits())
+                .param(MinorUnits.scale(product.getCurrency()))
+                .param(MinorUnits.scale(product.getCurrency()))
+                .param(product.getPriceMinorUnits())
                 .param(product.getProductType())
                 .param(writeVariants(product.getVariants()))
                 .param(Timestamp.valueOf(now))
                 .param(Timestamp.valueOf(now))
-                .update(keyHolder, "id");
+                .param(product.getLastSeenGeneration())
+                .param(product.getStoreId())
+                .update(keyHolder, "id", "last_seen_generation");
 
-        // Get the generated ID from the keyholder
+        // Get the generated ID and the effective generation from the keyholder
         Map<String, Object> keys = keyHolder.getKeys();
-        if (keys != null && keys.containsKey("id")) {
-            Object idValue = keys.get("id");
-            if (idValue instanceof Number idNumber) {
-                product.setId(idNumber.longValue());
-            }
+        if (keys != null && keys.get("id") instanceof Number idNumber) {
+            product.setId(idNumber.longValue());
+        }
+        if (keys != null && keys.get("last_seen_generation") instanceof Number generation) {
+            product.setLastSeenGeneration(generation.longValue());
         }
 
         return product
@@ -167,8 +279,8 @@ public class ProductRepository {
     private Product update(Product product) {
         String sql = """
             UPDATE products 
-            SET shopify_product_id = ?, title = ?, handle = ?, price = ?, product_type = ?, variants = ?, updated_at = ?
-            WHERE id = ?
+            SET shopify_product_id = ?, title = ?, handle = ?, price = round(? / 10::numeric ^ ?, ?), price_minor_units = ?, product_type = ?, variants = ?, updated_at = ?, last_seen_generation = COALESCE(?, last_seen_generation)
+            WHERE id = ? AND deleted_at IS NULL
             """;
         
         LocalDateTime now = LocalDateTime.now();
@@ -177,38 +289,163 @@ public class ProductRepository {
                 .param(product.getShopifyProductId())
                 .param(product.getTitle())
                 .param(product.getHandle())
-                .param(product.getPrice())
+                .param(product.getPriceMinorUnits())
+                .param(MinorUnits.scale(product.getCurrency()))
+                .param(MinorUnits.scale(product.getCurrency()))
+                .param(product.getPriceMinorUnits())
                 .param(product.getProductType())
                 .param(writeVariants(product.getVariants()))
                 .param(Timestamp.valueOf(now))
+                .param(product.getLastSeenGeneration())
                 .param(product.getId())
                 .update();
 
         return product.setUpdatedAt(now);
     }
 
-    public void deleteById(Long id) {
-        String sql = "DELETE FROM products WHERE id = ?";
-        jdbcClient.sql(sql).param(id).update();
+    /**
+     * Tombstones the product. The row stays in place until {@link #purgeDeletedBefore} removes it,
+     * so a delete is a single indexed update and is hidden from every read path immediately.
+     */
+    public boolean softDeleteById(Long id) {
+        String sql = "UPDATE products SET deleted_at = ? WHERE id = ? AND deleted_at IS NULL";
+        return jdbcClient.sql(sql)
+                .param(Timestamp.valueOf(LocalDateTime.now()))
+                .param(id)
+                .update() > 0;
+    }
+
+    /**
+     * Physically removes up to {@code batchSize} tombstones older than {@code cutoff}, remembering their
+     * Shopify ids in {@code product_tombstones} so that a later sync does not insert them again.
+     */
+    public int purgeDeletedBefore(LocalDateTime cutoff, int batchSize) {
+        String sql = """
+            WITH purged AS (
+                DELETE FROM products
+                WHERE id IN (
+                    SELECT id FROM products
+                    WHERE deleted_at < ?
+                    ORDER BY deleted_at
+                    LIMIT ?
+                )
+                RETURNING store_id, shopify_product_id, deleted_at
+            ), remembered AS (
+                INSERT INTO product_tombstones (store_id, shopify_product_id, deleted_at)
+                SELECT store_id, shopify_product_id, deleted_at FROM purged
+                WHERE shopify_product_id IS NOT NULL
+                ON CONFLICT (store_id, shopify_product_id) DO NOTHING
+            )
+            SELECT COUNT(*) FROM purged
+            """;
+
+        return jdbcClient.sql(sql)
+                .param(Timestamp.valueOf(cutoff))
+                .param(batchSize)
+                .query(Integer.class)
+                .single();
+    }
+
+    public Set<Long> findDeletedShopifyProductIds(String storeId, Collection<Long> shopifyProductIds) {
+        if (shopifyProductIds.isEmpty()) {
+            return Set.of();
+        }
+
+        String sql = """
+            SELECT shopify_product_id FROM products
+            WHERE deleted_at IS NOT NULL AND store_id = ? AND shopify_product_id = ANY(?)
+            UNION
+            SELECT shopify_product_id FROM product_tombstones
+            WHERE store_id = ? AND shopify_product_id = ANY(?)
+            """;
+
+        Long[] ids = shopifyProductIds.toArray(Long[]::new);
+        return new HashSet<>(jdbcClient.sql(sql)
+                .param(storeId)
+                .param(ids)
+                .param(storeId)
+                .param(ids)
+                .query(Long.class)
+                .list());
+    }
+
+    /** Round trip used to probe whether the database is reachable. */
+    public void ping() {
+        jdbcClient.sql("SELECT 1").query(Integer.class).single();
     }
 
     public long count() {
-        String sql = "SELECT COUNT(*) FROM products";
+        String sql = "SELECT COUNT(*) FROM products WHERE deleted_at IS NULL";
         return jdbcClient.sql(sql).query(Long.class).single();
     }
 
-    public int pruneExcess(int limit) {
+    public long count(String storeId) {
+        String sql = "SELECT COUNT(*) FROM products WHERE store_id = ? AND deleted_at IS NULL";
+        return jdbcClient.sql(sql).param(storeId).query(Long.class).single();
+    }
+
+    /**
+     * Deletes at most {@code batchSize} products of a store older than its {@code keep} most recently
+     * updated ones. The boundary row is found by walking the {@code (store_id, updated_at)} index
+     * backwards, so the cost is bounded by {@code keep + batchSize} rather than by the size of the table.
+     */
+    public int deleteBeyondNewest(String storeId, int keep, int batchSize) {
         String sql = """
             DELETE FROM products
             WHERE id IN (
                 SELECT id FROM products
-                ORDER BY updated_at DESC, id DESC
-                OFFSET ?
+                WHERE deleted_at IS NULL AND store_id = ? AND (updated_at, id) <= (
+                    SELECT updated_at, id FROM products
+                    WHERE deleted_at IS NULL AND store_id = ?
+                    ORDER BY updated_at DESC, id DESC
+                    OFFSET ? LIMIT 1
+                )
+                ORDER BY updated_at, id
+                LIMIT ?
             )
             """;
 
         return jdbcClient.sql(sql)
-                .param(limit)
+                .param(storeId)
+                .param(storeId)
+                .param(Math.max(keep, 0))
+                .param(batchSize)
+                .update();
+    }
+
+    public int deleteUpdatedBefore(String storeId, LocalDateTime cutoff, int batchSize) {
+        String sql = """
+            DELETE FROM products
+            WHERE id IN (
+                SELECT id FROM products
+                WHERE deleted_at IS NULL AND store_id = ? AND updated_at < ?
+                ORDER BY updated_at, id
+                LIMIT ?
+            )
+            """;
+
+        return jdbcClient.sql(sql)
+                .param(storeId)
+                .param(Timestamp.valueOf(cutoff))
+                .param(batchSize)
+                .update();
+    }
+
+    public int deleteLastSeenBefore(String storeId, long generation, int batchSize) {
+        String sql = """
+            DELETE FROM products
+            WHERE id IN (
+                SELECT id FROM products
+                WHERE deleted_at IS NULL AND store_id = ? AND last_seen_generation < ?
+                ORDER BY last_seen_generation, id
+                LIMIT ?
+            )
+            """;
+
+        return jdbcClient.sql(sql)
+                .param(storeId)
+                .param(generation)
+                .param(batchSize)
                 .update();
     }
 
@@ -229,9 +466,8 @@ public class ProductRepository {
         }
 
         try {
-            List<ProductVariant> variants = objectMapper.readValue(json, VARIANT_LIST_TYPE);
-            return variants != null ? variants : new ArrayList<>();
-        } catch (JsonProcessingException e) {
+            return VariantCodec.read(json);
+        } catch (IOException | IllegalArgumentException | ArithmeticException e) {
             logger.warn("Failed to parse variants JSON: {}", e.getMessage());
             return new ArrayList<>();
         }
@@ -241,9 +477,9 @@ public class ProductRepository {
         try {
             PGobject jsonObject = new PGobject();
             jsonObject.setType("jsonb");
-            jsonObject.setValue(objectMapper.writeValueAsString(variants != null ? variants : Collections.emptyList()));
+            jsonObject.setValue(VariantCodec.write(variants != null ? variants : Collections.emptyList()));
             return jsonObject;
-        } catch (SQLException | JsonProcessingException e) {
+        } catch (SQLException | IOException e) {
             throw new IllegalStateException("Failed to serialise product variants", e);
         }
     }
@@ -258,16 +494,22 @@ public class ProductRepository {
     private Product mapProduct(ResultSet rs, int rowNum) throws SQLException {
         Timestamp createdAt = rs.getTimestamp("created_at");
         Timestamp updatedAt = rs.getTimestamp("updated_at");
+        // The variants carry the currency, which gives the scale of price_minor_units
+        List<ProductVariant> variants = readVariants(rs.getObject("variants"));
+        Currency currency = variants.isEmpty() ? MinorUnits.DEFAULT_CURRENCY : variants.getFirst().getCurrency();
 
         return new Product()
                 .setId(rs.getLong("id"))
+                .setStoreId(rs.getString("store_id"))
                 .setShopifyProductId(rs.getLong("shopify_product_id"))
                 .setTitle(rs.getString("title"))
                 .setHandle(rs.getString("handle"))
-                .setPrice(rs.getBigDecimal("price"))
+                .setCurrency(currency)
+                .setPriceMinorUnits(rs.getLong("price_minor_units"))
                 .setProductType(rs.getString("product_type"))
-                .setVariants(readVariants(rs.getObject("variants")))
+                .setVariants(variants)
                 .setCreatedAt(createdAt != null ? createdAt.toLocalDateTime() : null)
-                .setUpdatedAt(updatedAt != null ? updatedAt.toLocalDateTime() : null);
+                .setUpdatedAt(updatedAt != null ? updatedAt.toLocalDateTime() : null)
+                .setLastSeenGeneration(rs.getObject("last_seen_generation", Long.class));
     }
 }
@@ -0,0 +1,64 @@
+package com.respiroc.gregfullstack.repository;
+
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Repository;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+@Repository
+public class SyncRunRepository {
+
+    private final JdbcClient jdbcClient;
+
+    public SyncRunRepository(JdbcClient jdbcClient) {
+        this.jdbcClient = jdbcClient;
+    }
+
+    public long start(String storeId) {
+        String sql = "INSERT INTO sync_runs (store_id) VALUES (?) RETURNING generation";
+        return jdbcClient.sql(sql).param(storeId).query(Long.class).single();
+    }
+
+    public void complete(long generation) {
+        String sql = "UPDATE sync_runs SET completed_at = CURRENT_TIMESTAMP WHERE generation = ?";
+        jdbcClient.sql(sql).param(generation).update();
+    }
+
+    /** Latest completed generation of every store that has completed at least one sync. */
+    public Map<String, Long> findLatestCompletedGenerations() {
+        String sql = """
+            SELECT store_id, MAX(generation) AS generation FROM sync_runs
+            WHERE completed_at IS NOT NULL
+            GROUP BY store_id
+            ORDER BY store_id
+            """;
+
+        Map<String, Long> generations = new LinkedHashMap<>();
+        jdbcClient.sql(sql)
+                .query(rs -> {
+                    generations.put(rs.getString("store_id"), rs.getLong("generation"));
+                });
+        return generations;
+    }
+
+    /**
+     * Generation of the store's completed run {@code runsBack} runs before its latest one. Generations
+     * are shared by all stores, so "N syncs ago" has to be looked up per store.
+     */
+    public Optional<Long> findCompletedGeneration(String storeId, int runsBack) {
+        String sql = """
+            SELECT generation FROM sync_runs
+            WHERE store_id = ? AND completed_at IS NOT NULL
+            ORDER BY generation DESC
+            OFFSET ? LIMIT 1
+            """;
+
+        return jdbcClient.sql(sql)
+                .param(storeId)
+                .param(Math.max(runsBack, 0))
+                .query(Long.class)
+                .optional();
+    }
+}
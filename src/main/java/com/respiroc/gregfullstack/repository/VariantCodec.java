@@ -0,0 +1,139 @@
+package com.respiroc.gregfullstack.repository;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.SegmentedStringWriter;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.respiroc.gregfullstack.model.MinorUnits;
+import com.respiroc.gregfullstack.model.ProductVariant;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+
+/**
+ * Reads and writes the {@code variants} JSONB column with Jackson's streaming API. Prices are parsed
+ * into minor units straight from the parser's token characters and written from a reused character
+ * buffer, so neither direction allocates a {@code BigDecimal} or an intermediate string per price.
+ * The document format is unchanged: {@code price} stays a decimal number, and {@code currency} is
+ * only written for currencies other than {@link MinorUnits#DEFAULT_CURRENCY}.
+ */
+final class VariantCodec {
+
+    // jsonb orders keys by length, so "price" is read before "currency"; prices are parsed at the
+    // largest scale in use and rescaled once the currency is known
+    private static final int READ_SCALE = 4;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final SerializedString SHOPIFY_VARIANT_ID = new SerializedString("shopifyVariantId");
+    private static final SerializedString TITLE = new SerializedString("title");
+    private static final SerializedString PRICE = new SerializedString("price");
+    private static final SerializedString CURRENCY = new SerializedString("currency");
+    private static final SerializedString SKU = new SerializedString("sku");
+    private static final SerializedString AVAILABLE = new SerializedString("available");
+
+    private VariantCodec() {
+    }
+
+    static List<ProductVariant> read(String json) throws IOException {
+        List<ProductVariant> variants = new ArrayList<>();
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new JsonParseException(parser, "Expected an array of variants");
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                variants.add(readVariant(parser));
+            }
+        }
+        return variants;
+    }
+
+    static String write(List<ProductVariant> variants) throws IOException {
+        // Recycled segments, as ObjectMapper.writeValueAsString uses
+        SegmentedStringWriter json = new SegmentedStringWriter(JSON_FACTORY._getBufferRecycler());
+        char[] digits = new char[MinorUnits.MAX_CHARS];
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(json)) {
+            generator.writeStartArray();
+            for (ProductVariant variant : variants) {
+                Currency currency = variant.getCurrency();
+                generator.writeStartObject();
+                generator.writeFieldName(SHOPIFY_VARIANT_ID);
+                if (variant.getShopifyVariantId() != null) {
+                    generator.writeNumber(variant.getShopifyVariantId());
+                } else {
+                    generator.writeNull();
+                }
+                generator.writeFieldName(TITLE);
+                generator.writeString(variant.getTitle());
+                generator.writeFieldName(PRICE);
+                generator.writeNumber(digits, 0, MinorUnits.write(variant.getPriceMinorUnits(), MinorUnits.scale(currency), digits));
+                if (!currency.equals(MinorUnits.DEFAULT_CURRENCY)) {
+                    generator.writeFieldName(CURRENCY);
+                    generator.writeString(currency.getCurrencyCode());
+                }
+                generator.writeFieldName(SKU);
+                generator.writeString(variant.getSku());
+                generator.writeFieldName(AVAILABLE);
+                generator.writeBoolean(variant.isAvailable());
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        }
+        return json.getAndClear();
+    }
+
+    private static ProductVariant readVariant(JsonParser parser) throws IOException {
+        ProductVariant variant = new ProductVariant();
+        long price = 0;
+        Currency currency = MinorUnits.DEFAULT_CURRENCY;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (field) {
+                case "shopifyVariantId" -> variant.setShopifyVariantId(parser.getLongValue());
+                case "title" -> variant.setTitle(parser.getText());
+                case "sku" -> variant.setSku(parser.getText());
+                case "available" -> variant.setAvailable(parser.getValueAsBoolean());
+                case "price" -> price = price(parser);
+                case "currency" -> currency = currency(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        return variant
+                .setCurrency(currency)
+                .setPriceMinorUnits(MinorUnits.rescale(price, READ_SCALE, MinorUnits.scale(currency)));
+    }
+
+    private static long price(JsonParser parser) throws IOException {
+        try {
+            return MinorUnits.parse(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength(), READ_SCALE);
+        } catch (NumberFormatException e) {
+            throw new JsonParseException(parser, e.getMessage(), e);
+        }
+    }
+
+    /** Resolves the currency code without materializing it when it is the default currency. */
+    private static Currency currency(JsonParser parser) throws IOException {
+        String defaultCode = MinorUnits.DEFAULT_CURRENCY.getCurrencyCode();
+        char[] chars = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        int length = parser.getTextLength();
+        if (length == defaultCode.length()) {
+            boolean matches = true;
+            for (int i = 0; i < length && matches; i++) {
+                matches = chars[offset + i] == defaultCode.charAt(i);
+            }
+            if (matches) {
+                return MinorUnits.DEFAULT_CURRENCY;
+            }
+        }
+        return Currency.getInstance(parser.getText());
+    }
+}
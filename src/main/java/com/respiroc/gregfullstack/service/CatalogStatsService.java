@@ -0,0 +1,54 @@
+package com.respiroc.gregfullstack.service;
+
+import com.respiroc.gregfullstack.model.CatalogStats;
+import com.respiroc.gregfullstack.repository.CatalogStatsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the home page statistics. The materialized views are refreshed after every completed sync
+ * and the result is kept in memory, so rendering the dashboard costs no query at all.
+ */
+@Service
+public class CatalogStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogStatsService.class);
+
+    private final CatalogStatsRepository catalogStatsRepository;
+    private volatile CatalogStats current;
+
+    public CatalogStatsService(CatalogStatsRepository catalogStatsRepository) {
+        this.catalogStatsRepository = catalogStatsRepository;
+    }
+
+    /** Refreshes the views and reloads the cached statistics. Parallel store syncs refresh one at a time. */
+    public synchronized void refresh() {
+        long started = System.nanoTime();
+        try {
+            catalogStatsRepository.refresh();
+            current = catalogStatsRepository.find().orElse(null);
+            logger.info("Refreshed catalog statistics in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        } catch (DataAccessException e) {
+            logger.error("Failed to refresh catalog statistics: {}", e.getMessage(), e);
+        }
+    }
+
+    /** Statistics as of the last refresh, loaded from the views on first use. */
+    public Optional<CatalogStats> current() {
+        CatalogStats stats = current;
+        if (stats == null) {
+            try {
+                stats = catalogStatsRepository.find().orElse(null);
+                current = stats;
+            } catch (DataAccessException e) {
+                logger.warn("Catalog statistics unavailable: {}", e.getMessage());
+            }
+        }
+        return Optional.ofNullable(stats);
+    }
+}
@@ -0,0 +1,115 @@
+package com.respiroc.gregfullstack.service;
+
+import com.respiroc.gregfullstack.config.PriceHistoryProperties;
+import com.respiroc.gregfullstack.model.PriceChange;
+import com.respiroc.gregfullstack.model.PriceMover;
+import com.respiroc.gregfullstack.model.Product;
+import com.respiroc.gregfullstack.model.ProductVariant;
+import com.respiroc.gregfullstack.repository.PriceHistoryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class PriceHistoryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PriceHistoryService.class);
+
+    private final PriceHistoryRepository priceHistoryRepository;
+    private final PriceHistoryProperties properties;
+    private final TransactionTemplate savepoint;
+
+    public PriceHistoryService(PriceHistoryRepository priceHistoryRepository, PriceHistoryProperties properties,
+                               PlatformTransactionManager transactionManager) {
+        this.priceHistoryRepository = priceHistoryRepository;
+        this.properties = properties;
+        this.savepoint = new TransactionTemplate(transactionManager);
+        this.savepoint.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+    }
+
+    /**
+     * Compares the variant prices of a synced product with its stored state and appends one row per
+     * variant whose price differs. Call it in the transaction that writes the product, so the history
+     * commits or rolls back with the prices it describes. Products and variants seen for the first time
+     * have no previous price and are not recorded.
+     */
+    public int recordChanges(long generation, Product incoming, Product stored) {
+        if (!properties.enabled() || stored == null) {
+            return 0;
+        }
+
+        List<PriceChange> changes = new ArrayList<>();
+        collectChanges(incoming, stored, changes);
+        if (changes.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            // A savepoint, so a failed insert is undone without aborting the product write around it
+            Integer inserted = savepoint.execute(status -> priceHistoryRepository.insertAll(generation, changes));
+            return inserted != null ? inserted : 0;
+        } catch (RuntimeException e) {
+            // History is best effort; it must never fail the sync itself
+            logger.warn("Failed to record {} price changes: {}", changes.size(), e.getMessage());
+            return 0;
+        }
+    }
+
+    public List<PriceChange> findSeries(String storeId, long shopifyProductId) {
+        return priceHistoryRepository.findSeries(storeId, shopifyProductId, LocalDateTime.now().minus(properties.seriesWindow()));
+    }
+
+    public List<PriceMover> findBiggestMovers(int limit) {
+        int boundedLimit = Math.clamp(limit, 1, properties.maxMovers());
+        return priceHistoryRepository.findBiggestMovers(LocalDateTime.now().minus(properties.moversWindow()), boundedLimit);
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${catalog.price-history.partition-check-interval:PT12H}")
+    public void ensurePartitions() {
+        if (!properties.enabled()) {
+            return;
+        }
+        LocalDate month = LocalDate.now().withDayOfMonth(1);
+        for (int i = 0; i <= properties.partitionsAhead(); i++) {
+            priceHistoryRepository.createPartition(month.plusMonths(i));
+        }
+    }
+
+    private static void collectChanges(Product incoming, Product stored, List<PriceChange> changes) {
+        Long shopifyProductId = incoming.getShopifyProductId();
+        if (shopifyProductId == null) {
+            return;
+        }
+
+        Map<Long, ProductVariant> storedVariants = new HashMap<>();
+        for (ProductVariant variant : stored.getVariants()) {
+            if (variant.getShopifyVariantId() != null) {
+                storedVariants.put(variant.getShopifyVariantId(), variant);
+            }
+        }
+
+        // Prices are compared in minor units; decimals are only built for the rows actually written
+        for (ProductVariant variant : incoming.getVariants()) {
+            if (variant.getShopifyVariantId() == null) {
+                continue;
+            }
+            ProductVariant previous = storedVariants.get(variant.getShopifyVariantId());
+            if (previous != null && (previous.getPriceMinorUnits() != variant.getPriceMinorUnits()
+                    || !previous.getCurrency().equals(variant.getCurrency()))) {
+                changes.add(new PriceChange(incoming.getStoreId(), shopifyProductId, variant.getShopifyVariantId(), null,
+                        previous.getPrice(), variant.getPrice()));
+            }
+        }
+    }
+}
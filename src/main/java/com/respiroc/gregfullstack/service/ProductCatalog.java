@@ -0,0 +1,154 @@
+package com.respiroc.gregfullstack.service;
+
+import com.respiroc.gregfullstack.config.CatalogSnapshotProperties;
+import com.respiroc.gregfullstack.model.Product;
+import com.respiroc.gregfullstack.repository.ProductRepository;
+import com.respiroc.gregfullstack.snapshot.CatalogSnapshot;
+import com.respiroc.gregfullstack.snapshot.CatalogSnapshotService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Read side of the catalog used by the pages. PostgreSQL is probed at startup and every
+ * {@code catalog.snapshot.probe-interval}; while it is unavailable and a snapshot is mapped, reads are
+ * answered from the snapshot without waiting on the connection pool. A read that fails with a
+ * {@link DataAccessException} also marks the database unavailable until the next successful probe.
+ */
+@Service
+public class ProductCatalog {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductCatalog.class);
+
+    private final ProductRepository productRepository;
+    private final CatalogSnapshotService snapshotService;
+    private final CatalogSnapshotProperties properties;
+    private final ScheduledExecutorService prober;
+    private final ExecutorService pingExecutor;
+    // Unknown until the first probe answers, so a mapped snapshot serves the first requests after startup
+    private volatile boolean databaseAvailable;
+    // A ping stuck waiting for a connection is awaited again by the next probe instead of piling up
+    private CompletableFuture<Void> ping;
+
+    public ProductCatalog(ProductRepository productRepository,
+                          CatalogSnapshotService snapshotService,
+                          CatalogSnapshotProperties properties) {
+        this.productRepository = productRepository;
+        this.snapshotService = snapshotService;
+        this.properties = properties;
+        this.prober = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "catalog-db-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.pingExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("catalog-db-ping-", 1).factory());
+    }
+
+    @PostConstruct
+    void startProbing() {
+        prober.scheduleWithFixedDelay(this::probe, 0, properties.probeInterval().toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        prober.shutdownNow();
+        pingExecutor.shutdownNow();
+    }
+
+    public long count() {
+        return read(productRepository::count, CatalogSnapshot::count);
+    }
+
+    public List<Product> findPage(int offset, int limit) {
+        return read(() -> productRepository.findPage(offset, limit), snapshot -> snapshot.findPage(offset, limit));
+    }
+
+    /** Lazily streams a page; the caller must close the stream once the page has been rendered. */
+    public Stream<Product> streamPage(int offset, int limit) {
+        return read(() -> productRepository.streamPage(offset, limit), snapshot -> snapshot.streamPage(offset, limit));
+    }
+
+    public List<Product> searchByTitle(String query) {
+        return read(() -> productRepository.searchByTitle(query), snapshot -> snapshot.searchByTitle(query));
+    }
+
+    public Optional<Product> findById(Long id) {
+        return read(() -> productRepository.findById(id), snapshot -> snapshot.findById(id));
+    }
+
+    /** Whether reads are currently answered from the snapshot. */
+    public boolean isServingSnapshot() {
+        return !databaseAvailable && snapshotService.current().isPresent();
+    }
+
+    /** Called after an add, edit or delete, so a fallback never serves the catalog as it was before. */
+    public void catalogChanged() {
+        snapshotService.invalidate();
+    }
+
+    void probe() {
+        CompletableFuture<Void> pending;
+        synchronized (this) {
+            if (ping == null || ping.isDone()) {
+                ping = CompletableFuture.runAsync(productRepository::ping, pingExecutor);
+            }
+            pending = ping;
+        }
+        try {
+            pending.get(properties.probeTimeout().toMillis(), TimeUnit.MILLISECONDS);
+            markAvailable();
+        } catch (ExecutionException e) {
+            markUnavailable("probe failed: " + e.getCause().getMessage());
+        } catch (TimeoutException e) {
+            markUnavailable("probe did not answer within " + properties.probeTimeout());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private <T> T read(Supplier<T> database, Function<CatalogSnapshot, T> snapshot) {
+        Optional<CatalogSnapshot> current = snapshotService.current();
+        if (current.isPresent() && !databaseAvailable) {
+            return snapshot.apply(current.get());
+        }
+        try {
+            return database.get();
+        } catch (DataAccessException e) {
+            markUnavailable("read failed: " + e.getMessage());
+            if (current.isEmpty()) {
+                throw e;
+            }
+            return snapshot.apply(current.get());
+        }
+    }
+
+    private void markAvailable() {
+        if (!databaseAvailable) {
+            databaseAvailable = true;
+            logger.info("Database is available; reading the catalog from PostgreSQL");
+        }
+    }
+
+    private void markUnavailable(String reason) {
+        if (databaseAvailable) {
+            databaseAvailable = false;
+            logger.warn("Database is unavailable ({}); serving the catalog snapshot when one is mapped", reason);
+        }
+    }
+}
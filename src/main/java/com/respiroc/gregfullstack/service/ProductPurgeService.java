@@ -0,0 +1,46 @@
+package com.respiroc.gregfullstack.service;
+
+import com.respiroc.gregfullstack.config.PurgeProperties;
+import com.respiroc.gregfullstack.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+
+@Service
+public class ProductPurgeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductPurgeService.class);
+
+    private final ProductRepository productRepository;
+    private final PurgeProperties properties;
+
+    public ProductPurgeService(ProductRepository productRepository, PurgeProperties properties) {
+        this.productRepository = productRepository;
+        this.properties = properties;
+    }
+
+    @Scheduled(initialDelayString = "${catalog.purge.initial-delay:PT2M}",
+            fixedDelayString = "${catalog.purge.interval:PT10M}")
+    public void purgeTombstones() {
+        if (!properties.enabled()) {
+            return;
+        }
+
+        int batchSize = Math.max(properties.batchSize(), 1);
+        LocalDateTime cutoff = LocalDateTime.now().minus(properties.gracePeriod());
+
+        int total = 0;
+        int purged;
+        do {
+            purged = productRepository.purgeDeletedBefore(cutoff, batchSize);
+            total += purged;
+        } while (purged == batchSize && !Thread.currentThread().isInterrupted());
+
+        if (total > 0) {
+            logger.info("Purged {} deleted products (tombstoned before {})", total, cutoff);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.respiroc.gregfullstack.service;
+
+import com.respiroc.gregfullstack.config.RetentionProperties;
+import com.respiroc.gregfullstack.repository.ProductRepository;
+import com.respiroc.gregfullstack.repository.SyncRunRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntSupplier;
+
+@Service
+public class ProductRetentionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductRetentionService.class);
+
+    private final ProductRepository productRepository;
+    private final SyncRunRepository syncRunRepository;
+    private final RetentionProperties properties;
+
+    private final Map<String, Long> lastProcessedGenerations = new ConcurrentHashMap<>();
+
+    public ProductRetentionService(ProductRepository productRepository,
+                                   SyncRunRepository syncRunRepository,
+                                   RetentionProperties properties) {
+        this.productRepository = productRepository;
+        this.syncRunRepository = syncRunRepository;
+        this.properties = properties;
+    }
+
+    @Scheduled(initialDelayString = "${catalog.retention.initial-delay:PT1M}",
+            fixedDelayString = "${catalog.retention.interval:PT5M}")
+    public void applyRetention() {
+        if (!properties.enabled()) {
+            return;
+        }
+
+        Map<String, Long> latestGenerations = syncRunRepository.findLatestCompletedGenerations();
+        if (latestGenerations.isEmpty()) {
+            logger.debug("Skipping retention: no completed sync yet");
+            return;
+        }
+
+        // Each store keeps its own products; policies apply within a store
+        latestGenerations.forEach(this::applyRetention);
+    }
+
+    private void applyRetention(String storeId, long generation) {
+        // Count and generation based policies only change outcome after a new sync has completed
+        if (properties.policy() != RetentionProperties.Policy.MAX_AGE
+                && Long.valueOf(generation).equals(lastProcessedGenerations.get(storeId))) {
+            logger.debug("Skipping retention for store {}: generation {} already processed", storeId, generation);
+            return;
+        }
+
+        int batchSize = Math.max(properties.batchSize(), 1);
+        int removed = switch (properties.policy()) {
+            case MAX_COUNT -> deleteInBatches(() -> productRepository.deleteBeyondNewest(storeId, properties.maxProducts(), batchSize), batchSize);
+            case MAX_AGE -> {
+                LocalDateTime cutoff = LocalDateTime.now().minus(properties.maxAge());
+                yield deleteInBatches(() -> productRepository.deleteUpdatedBefore(storeId, cutoff, batchSize), batchSize);
+            }
+            case UNSEEN_SYNCS -> {
+                Optional<Long> oldestKept = syncRunRepository.findCompletedGeneration(storeId, properties.maxMissedSyncs());
+                yield oldestKept
+                        .map(kept -> deleteInBatches(() -> productRepository.deleteLastSeenBefore(storeId, kept, batchSize), batchSize))
+                        .orElse(0);
+            }
+        };
+
+        lastProcessedGenerations.put(storeId, generation);
+        logger.info("Retention ({}) completed for store {} at sync generation {}. Deleted: {}",
+                properties.policy(), storeId, generation, removed);
+    }
+
+    private int deleteInBatches(IntSupplier batch, int batchSize) {
+        int total = 0;
+        int deleted;
+        do {
+            deleted = batch.getAsInt();
+            total += deleted;
+            if (deleted == batchSize && !pauseBetweenBatches()) {
+                break;
+            }
+        } while (deleted == batchSize);
+        return total;
+    }
+
+    private boolean pauseBetweenBatches() {
+        long pauseMillis = properties.batchPause().toMillis();
+        if (pauseMillis <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(pauseMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.respiroc.gregfullstack.service;
+
+import com.respiroc.gregfullstack.config.SearchProperties;
+import com.respiroc.gregfullstack.diagnostics.SqlDiagnostics;
+import com.respiroc.gregfullstack.diagnostics.SqlScope;
+import com.respiroc.gregfullstack.model.Product;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Title search for the as-you-type search page. Requests for the same normalized term share one
+ * in-flight query and a short-lived cached result. Keystrokes are debounced per client without holding
+ * a request thread: each client has one pending slot, a newer keystroke takes it over and answers the
+ * request it replaced as superseded, and the query only runs once the slot has been left alone for
+ * {@code debounce}. A keystroke that arrives while the query runs supersedes its result as well.
+ */
+@Service
+public class ProductSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchService.class);
+
+    private final ProductCatalog productCatalog;
+    private final SearchProperties properties;
+    private final SqlDiagnostics sqlDiagnostics;
+    private final ExecutorService searchExecutor;
+    private final Executor debounced;
+    private final Map<SearchKey, CompletableFuture<List<Product>>> inFlight = new ConcurrentHashMap<>();
+    private final Map<SearchKey, CachedResult> cache = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    // Keystroke state per client, least recently seen first; guarded by itself
+    private final Map<String, ClientState> clients;
+
+    public ProductSearchService(ProductCatalog productCatalog, SearchProperties properties, SqlDiagnostics sqlDiagnostics) {
+        this.productCatalog = productCatalog;
+        this.properties = properties;
+        this.sqlDiagnostics = sqlDiagnostics;
+        this.searchExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("product-search-", 1).factory());
+        this.debounced = CompletableFuture.delayedExecutor(properties.debounce().toNanos(), TimeUnit.NANOSECONDS, searchExecutor);
+        this.clients = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ClientState> eldest) {
+                return size() > properties.maxTrackedClients();
+            }
+        };
+    }
+
+    /**
+     * Searches on behalf of a client keystroke once the client has paused for {@code debounce}. The
+     * result is empty when the request was superseded by a newer keystroke from the same client and
+     * should not be rendered; that happens as soon as the newer keystroke arrives.
+     *
+     * @param sequence the keystroke number sent by the search form, or {@code null} to order requests
+     *                 by arrival
+     */
+    public CompletableFuture<Optional<List<Product>>> search(String client, Long sequence, String term) {
+        Pending pending;
+        Pending replaced;
+        synchronized (clients) {
+            ClientState state = clients.computeIfAbsent(client, ignored -> new ClientState());
+            long keystroke = sequence != null ? sequence : state.latestSequence + 1;
+            if (keystroke < state.latestSequence) {
+                logger.debug("Dropping superseded search request {} from client {}", keystroke, client);
+                return CompletableFuture.completedFuture(Optional.empty());
+            }
+            state.latestSequence = keystroke;
+            replaced = state.pending;
+            pending = new Pending(term, new CompletableFuture<>());
+            state.pending = pending;
+        }
+        if (replaced != null) {
+            replaced.result().complete(Optional.empty());
+        }
+        debounced.execute(() -> run(client, pending));
+        return pending.result();
+    }
+
+    public List<Product> search(String term) {
+        String normalized = normalize(term);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+
+        // Keyed by generation, so neither a query that started before invalidate() nor its cached
+        // result is handed to a search that started after it
+        SearchKey key = new SearchKey(generation.get(), normalized);
+        CachedResult cached = cache.get(key);
+        if (cached != null && System.nanoTime() - cached.expiresAt() < 0) {
+            return cached.products();
+        }
+
+        CompletableFuture<List<Product>> future = new CompletableFuture<>();
+        CompletableFuture<List<Product>> running = inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            return join(running);
+        }
+
+        try {
+            List<Product> products = List.copyOf(productCatalog.searchByTitle(normalized));
+            if (key.generation() == generation.get()) {
+                cacheResult(key, products);
+            }
+            future.complete(products);
+            return products;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /** Drops cached results, e.g. after a product was added, changed or deleted. */
+    public void invalidate() {
+        generation.incrementAndGet();
+        cache.clear();
+    }
+
+    static String normalize(String term) {
+        return term == null ? "" : term.trim().toLowerCase(Locale.ROOT);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        searchExecutor.shutdownNow();
+    }
+
+    private void run(String client, Pending pending) {
+        if (pending.result().isDone()) {
+            // Superseded during the debounce delay
+            return;
+        }
+        // The request that started this search has already returned its thread, so the query is
+        // counted and budgeted in a scope of its own
+        try (SqlScope ignored = sqlDiagnostics.open("http", "GET /search/results (debounced)")) {
+            pending.result().complete(Optional.of(search(pending.term())));
+        } catch (RuntimeException e) {
+            pending.result().completeExceptionally(e);
+        } finally {
+            synchronized (clients) {
+                ClientState state = clients.get(client);
+                if (state != null && state.pending == pending) {
+                    state.pending = null;
+                }
+            }
+        }
+    }
+
+    private void cacheResult(SearchKey key, List<Product> products) {
+        if (cache.size() >= properties.cacheMaxEntries()) {
+            long now = System.nanoTime();
+            cache.values().removeIf(entry -> now - entry.expiresAt() >= 0);
+            if (cache.size() >= properties.cacheMaxEntries()) {
+                cache.clear();
+            }
+        }
+        cache.put(key, new CachedResult(products, System.nanoTime() + properties.cacheTtl().toNanos()));
+    }
+
+    private static List<Product> join(CompletableFuture<List<Product>> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private record SearchKey(long generation, String term) {
+    }
+
+    /** A keystroke waiting for its client to pause, or whose query is running. */
+    private record Pending(String term, CompletableFuture<Optional<List<Product>>> result) {
+    }
+
+    private static final class ClientState {
+        private long latestSequence = Long.MIN_VALUE;
+        private Pending pending;
+    }
+
+    private record CachedResult(List<Product> products, long expiresAt) {
+    }
+}
@@ -0,0 +1,34 @@
+package com.respiroc.gregfullstack.service;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** Exposes per-store sync statistics at {@code /actuator/sync}; {@code DELETE} cancels running syncs. */
+@Component
+@Endpoint(id = "sync")
+public class ProductSyncEndpoint {
+
+    private final ProductSyncService productSyncService;
+
+    public ProductSyncEndpoint(ProductSyncService productSyncService) {
+        this.productSyncService = productSyncService;
+    }
+
+    @ReadOperation
+    public Map<String, Object> sync() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("running", productSyncService.isSyncRunning());
+        result.put("stores", productSyncService.storeSyncStats());
+        return result;
+    }
+
+    @DeleteOperation
+    public Map<String, Object> cancel() {
+        return Map.of("cancelled", productSyncService.cancelSync());
+    }
+}
@@ -1,175 +1,539 @@
 package com.respiroc.gregfullstack.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.respiroc.gregfullstack.client.FeedUnavailableException;
+import com.respiroc.gregfullstack.client.ProductFeedClient;
+import com.respiroc.gregfullstack.config.StoreSyncProperties;
+import com.respiroc.gregfullstack.config.SyncPipelineProperties;
+import com.respiroc.gregfullstack.diagnostics.SqlDiagnostics;
+import com.respiroc.gregfullstack.diagnostics.SqlScope;
+import com.respiroc.gregfullstack.diagnostics.SyncPhaseEvent;
+import com.respiroc.gregfullstack.model.MinorUnits;
 import com.respiroc.gregfullstack.model.Product;
 import com.respiroc.gregfullstack.model.ProductVariant;
 import com.respiroc.gregfullstack.repository.ProductRepository;
+import com.respiroc.gregfullstack.repository.SyncRunRepository;
+import com.respiroc.gregfullstack.snapshot.CatalogSnapshotService;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.math.BigDecimal;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
 
 @Service
 public class ProductSyncService {
 
     private static final Logger logger = LoggerFactory.getLogger(ProductSyncService.class);
-    private static final String FAMME_PRODUCTS_URL = "https://famme.no/products.json";
     private static final int MAX_PRODUCTS = 50;
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
 
     private final ProductRepository productRepository;
-    private final RestTemplate restTemplate;
-    private final ObjectMapper objectMapper;
+    private final SyncRunRepository syncRunRepository;
+    private final ProductFeedClient feedClient;
+    private final SqlDiagnostics sqlDiagnostics;
+    private final SyncPipelineProperties pipelineProperties;
+    private final CatalogSnapshotService catalogSnapshotService;
+    private final PriceHistoryService priceHistoryService;
+    private final CatalogStatsService catalogStatsService;
+    private final TransactionTemplate writeTransaction;
+    private final Map<String, SyncPipeline> runningPipelines = new ConcurrentHashMap<>();
+    private final Map<String, StoreMetrics> storeMetrics = new ConcurrentHashMap<>();
 
-    public ProductSyncService(ProductRepository productRepository, RestTemplate restTemplate) {
+    public ProductSyncService(ProductRepository productRepository,
+                              SyncRunRepository syncRunRepository,
+                              ProductFeedClient feedClient,
+                              SqlDiagnostics sqlDiagnostics,
+                              SyncPipelineProperties pipelineProperties,
+                              CatalogSnapshotService catalogSnapshotService,
+                              PriceHistoryService priceHistoryService,
+                              CatalogStatsService catalogStatsService,
+                              PlatformTransactionManager transactionManager) {
         this.productRepository = productRepository;
-        this.restTemplate = restTemplate;
-        this.objectMapper = new ObjectMapper();
+        this.syncRunRepository = syncRunRepository;
+        this.feedClient = feedClient;
+        this.sqlDiagnostics = sqlDiagnostics;
+        this.pipelineProperties = pipelineProperties;
+        this.catalogSnapshotService = catalogSnapshotService;
+        this.priceHistoryService = priceHistoryService;
+        this.catalogStatsService = catalogStatsService;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
     }
 
-    @Scheduled(initialDelay = 0, fixedDelay = 3600000) // Run immediately, then every hour
-    public void syncProducts() {
-        logger.info("Starting product sync from Famme API...");
-        
-        try {
-            String response = restTemplate.getForObject(FAMME_PRODUCTS_URL, String.class);
-            if (response == null) {
-                logger.error("Received null response from Famme API");
+    /**
+     * Syncs one store. Runs as four stages connected by bounded queues: fetch (streams products out of
+     * the feed response), parse, diff (one batched lookup per chunk of products) and write. Each stage
+     * has its own workers, so network, parsing and database time overlap instead of adding up. At most
+     * one sync runs per store; a request for a store that is already syncing is skipped.
+     *
+     * @param conditional send the feed validators of the previous run, so an unchanged feed is a 304
+     */
+    public void syncStore(StoreSyncProperties.Store store, boolean conditional) {
+        StoreMetrics metrics = storeMetrics.computeIfAbsent(store.id(), ignored -> new StoreMetrics());
+        SyncPipeline pipeline = new SyncPipeline("product-sync-" + store.id());
+        if (runningPipelines.putIfAbsent(store.id(), pipeline) != null) {
+            logger.info("Product sync for store {} already running; skipping", store.id());
+            metrics.skipped.increment();
+            pipeline.close();
+            return;
+        }
+
+        logger.info("Starting product sync for store {} from {}", store.id(), store.url());
+        SyncRun run = new SyncRun(store);
+        SyncPhaseEvent syncEvent = new SyncPhaseEvent();
+        syncEvent.begin();
+        metrics.runs.increment();
+        metrics.lastStartedAt = Instant.now();
+        long started = System.nanoTime();
+        SyncOutcome outcome = SyncOutcome.FAILED;
+
+        // One SQL scope for the whole run: stage workers attach to it, so totals, the sync budget and
+        // N+1 detection cover every statement of the run rather than one batch at a time
+        try (SqlScope sqlScope = sqlDiagnostics.open("sync", "product-sync/" + store.id()); pipeline) {
+            run.sqlScope = sqlScope;
+            SyncPipeline.Stage<PendingWrite> write = pipeline.stage("write",
+                    pipelineProperties.writeParallelism(), pipelineProperties.queueCapacity(), 1, null,
+                    batch -> inScope(run, "write", batch::size, () -> batch.forEach(pending -> write(run, pending))));
+            SyncPipeline.Stage<Product> diff = pipeline.stage("diff",
+                    pipelineProperties.diffParallelism(), pipelineProperties.queueCapacity(), pipelineProperties.diffBatchSize(), write,
+                    batch -> inScope(run, "diff", batch::size, () -> diff(run, batch, write)));
+            SyncPipeline.Stage<FeedProduct> parse = pipeline.stage("parse",
+                    pipelineProperties.parseParallelism(), pipelineProperties.queueCapacity(), 1, diff,
+                    batch -> phase(run, "parse", batch::size, () -> {
+                        for (FeedProduct feedProduct : batch) {
+                            Product product = parseProduct(feedProduct);
+                            if (product == null) {
+                                run.skippedInvalid.incrementAndGet();
+                            } else {
+                                diff.emit(product.setStoreId(store.id()));
+                            }
+                        }
+                    }));
+            SyncPipeline.Stage<Boolean> fetch = pipeline.stage("fetch", 1, 1, 1, parse,
+                    batch -> inScope(run, "fetch", run.processed::get, () -> fetch(run, batch.getFirst(), parse)));
+
+            pipeline.start();
+            fetch.emit(conditional);
+            fetch.complete();
+            pipeline.await();
+
+            if (run.notModified) {
+                logger.info("Store {} reports no changes since the last sync; nothing to do", store.id());
+                outcome = SyncOutcome.NOT_MODIFIED;
                 return;
             }
-
-            JsonNode rootNode = objectMapper.readTree(response);
-            JsonNode productsNode = rootNode.get("products");
-            
-            if (productsNode == null || !productsNode.isArray()) {
-                logger.error("Invalid response format - products array not found");
+            if (run.invalidFeed) {
+                logger.error("Invalid response format from store {} - products array not found", store.id());
+                feedClient.forgetValidators(store.url());
+                outcome = SyncOutcome.INVALID_FEED;
                 return;
             }
 
-            long initialCount = productRepository.count();
-            long availableSlots = Math.max(0, MAX_PRODUCTS - initialCount);
+            // Excess products are removed by ProductRetentionService once this generation is complete
+            syncRunRepository.complete(run.generation);
+            catalogSnapshotService.refresh(run.generation);
+            catalogStatsService.refresh();
+            long finalCount = productRepository.count(store.id());
+            outcome = SyncOutcome.COMPLETED;
+
+            logger.info("Product sync completed for store {}. Generation: {}, Processed: {}, Inserted: {}, Updated: {}, Skipped (invalid): {}, Skipped (limit): {}, Skipped (deleted): {}, Total in store: {}",
+                    store.id(), run.generation, run.processed.get(), run.inserted.get(), run.updated.get(), run.skippedInvalid.get(),
+                    run.skippedByLimit.get(), run.skippedDeleted.get(), finalCount);
+
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof FeedUnavailableException unavailable) {
+                logger.error("Feed of store {} unavailable: {}", store.id(), unavailable.getMessage());
+                outcome = SyncOutcome.UNAVAILABLE;
+            } else {
+                logger.error("Error during product sync for store {}: {}", store.id(), e.getCause().getMessage(), e.getCause());
+                feedClient.forgetValidators(store.url());
+            }
+        } catch (CancellationException | InterruptedException e) {
+            logger.warn("Product sync for store {} cancelled", store.id());
+            feedClient.forgetValidators(store.url());
+            outcome = SyncOutcome.CANCELLED;
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+        } catch (Exception e) {
+            logger.error("Error during product sync for store {}: {}", store.id(), e.getMessage(), e);
+            feedClient.forgetValidators(store.url());
+        } finally {
+            commit(syncEvent, run, "sync", run.processed.get());
+            metrics.finish(run, outcome, Duration.ofNanos(System.nanoTime() - started), pipeline.stats());
+            runningPipelines.remove(store.id(), pipeline);
+            logger.info("Product sync stages for store {}: {}", store.id(), metrics.lastStageStats);
+        }
+    }
 
-            int processedCount = 0;
-            int insertedCount = 0;
-            int updatedCount = 0;
-            int skippedInvalid = 0;
-            int skippedByLimit = 0;
+    private void fetch(SyncRun run, boolean conditional, SyncPipeline.Stage<FeedProduct> parse) throws Exception {
+        Optional<String> response = feedClient.fetchProducts(run.store.url(), conditional);
+        if (response.isEmpty()) {
+            run.notModified = true;
+            return;
+        }
 
-            for (JsonNode productNode : productsNode) {
-                if (processedCount >= MAX_PRODUCTS) {
+        // Products are handed to the parse stage as slices of the document while the rest of it is still
+        // being tokenized; skipping a product only scans its characters, it decodes no values
+        char[] document = response.get().toCharArray();
+        try (JsonParser parser = JSON_FACTORY.createParser(document)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                run.invalidFeed = true;
+                return;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (!"products".equals(field)) {
+                    parser.skipChildren();
+                    continue;
+                }
+                if (value != JsonToken.START_ARRAY) {
                     break;
                 }
 
-                processedCount++;
-
-                try {
-                    Product product = parseProduct(productNode);
-                    if (product == null) {
-                        skippedInvalid++;
+                run.generation = syncRunRepository.start(run.store.id());
+                run.availableSlots.set(Math.max(0, MAX_PRODUCTS - productRepository.count(run.store.id())));
+                JsonToken element;
+                while ((element = parser.nextToken()) != JsonToken.END_ARRAY && run.processed.get() < MAX_PRODUCTS) {
+                    run.processed.incrementAndGet();
+                    if (element != JsonToken.START_OBJECT) {
+                        parser.skipChildren();
+                        run.skippedInvalid.incrementAndGet();
                         continue;
                     }
-
-                    Optional<Product> existingProduct = productRepository.findByShopifyProductId(product.getShopifyProductId());
-                    if (existingProduct.isPresent()) {
-                        Product current = existingProduct.get();
-                        product.setId(current.getId());
-                        product.setCreatedAt(current.getCreatedAt());
-                        productRepository.save(product);
-                        updatedCount++;
-                    } else if (availableSlots > 0) {
-                        productRepository.save(product);
-                        availableSlots--;
-                        insertedCount++;
-                    } else {
-                        skippedByLimit++;
-                    }
-                } catch (Exception e) {
-                    logger.warn("Failed to process product node: {}", e.getMessage());
-                    skippedInvalid++;
+                    int start = (int) parser.currentTokenLocation().getCharOffset();
+                    parser.skipChildren();
+                    int end = (int) parser.currentLocation().getCharOffset();
+                    parse.emit(new FeedProduct(document, start, end - start));
                 }
+                return;
             }
+            run.invalidFeed = true;
+        }
+    }
 
-            int removed = productRepository.pruneExcess(MAX_PRODUCTS);
-            long finalCount = productRepository.count();
+    private void diff(SyncRun run, List<Product> batch, SyncPipeline.Stage<PendingWrite> write) throws InterruptedException {
+        String storeId = run.store.id();
+        List<Long> shopifyIds = batch.stream().map(Product::getShopifyProductId).toList();
+        Set<Long> deletedIds = productRepository.findDeletedShopifyProductIds(storeId, shopifyIds);
+        Map<Long, Product> existing = new HashMap<>();
+        for (Product current : productRepository.findByShopifyProductIds(storeId, shopifyIds)) {
+            existing.put(current.getShopifyProductId(), current);
+        }
 
-            logger.info("Product sync completed. Processed: {}, Inserted: {}, Updated: {}, Skipped (invalid): {}, Skipped (limit): {}, Deleted excess: {}, Total in DB: {}",
-                    processedCount, insertedCount, updatedCount, skippedInvalid, skippedByLimit, removed, finalCount);
+        for (Product product : batch) {
+            if (deletedIds.contains(product.getShopifyProductId())) {
+                run.skippedDeleted.incrementAndGet();
+                continue;
+            }
+            if (!run.seenShopifyIds.add(product.getShopifyProductId())) {
+                logger.debug("Skipping duplicate product in feed of store {}: {}", storeId, product.getShopifyProductId());
+                run.skippedInvalid.incrementAndGet();
+                continue;
+            }
+            product.setLastSeenGeneration(run.generation);
 
-        } catch (Exception e) {
-            logger.error("Error during product sync: {}", e.getMessage(), e);
+            Product current = existing.get(product.getShopifyProductId());
+            if (current != null) {
+                product.setId(current.getId());
+                product.setCreatedAt(current.getCreatedAt());
+                write.emit(new PendingWrite(product, current));
+            } else if (run.availableSlots.getAndUpdate(slots -> slots > 0 ? slots - 1 : 0) > 0) {
+                write.emit(new PendingWrite(product, null));
+            } else {
+                run.skippedByLimit.incrementAndGet();
+            }
         }
     }
 
-    private Product parseProduct(JsonNode productNode) {
+    private void write(SyncRun run, PendingWrite pending) {
+        Product product = pending.product();
+        boolean insert = product.getId() == null;
         try {
-            Long shopifyProductId = productNode.get("id").asLong();
-            String title = productNode.get("title").asText();
-            String handle = productNode.get("handle").asText();
-            String productType = productNode.has("product_type") ? productNode.get("product_type").asText() : null;
+            // Price history commits or rolls back together with the variant prices it describes
+            writeTransaction.executeWithoutResult(status -> {
+                productRepository.save(product);
+                priceHistoryService.recordChanges(run.generation, product, pending.stored());
+            });
+            (insert ? run.inserted : run.updated).incrementAndGet();
+        } catch (Exception e) {
+            logger.warn("Failed to save product {}: {}", product.getShopifyProductId(), e.getMessage());
+            run.skippedInvalid.incrementAndGet();
+        }
+    }
 
-            // Validate required fields
-            if (title == null || title.trim().isEmpty() || handle == null || handle.trim().isEmpty()) {
-                logger.warn("Skipping product with missing title or handle: {}", shopifyProductId);
-                return null;
+    private void inScope(SyncRun run, String stage, IntSupplier products, StageWork work) throws Exception {
+        phase(run, stage, products, () -> {
+            try (SqlScope.Attachment ignored = sqlDiagnostics.attach(run.sqlScope)) {
+                work.run();
             }
+        });
+    }
 
-            List<ProductVariant> variants = extractVariants(productNode.get("variants"));
-            BigDecimal minPrice = variants.stream()
-                    .map(ProductVariant::getPrice)
-                    .filter(Objects::nonNull)
-                    .min(BigDecimal::compareTo)
-                    .orElse(BigDecimal.ZERO);
+    private void phase(SyncRun run, String phase, IntSupplier products, StageWork work) throws Exception {
+        SyncPhaseEvent event = new SyncPhaseEvent();
+        event.begin();
+        try {
+            work.run();
+        } finally {
+            commit(event, run, phase, products.getAsInt());
+        }
+    }
 
-            return new Product(shopifyProductId, title, handle, minPrice, productType, variants);
+    private static void commit(SyncPhaseEvent event, SyncRun run, String phase, int products) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.phase = phase;
+            event.store = run.store.id();
+            event.generation = run.generation;
+            event.products = products;
+            event.commit();
+        }
+    }
 
+    private Product parseProduct(FeedProduct feedProduct) {
+        Long shopifyProductId = null;
+        String title = null;
+        String handle = null;
+        String productType = null;
+        List<ProductVariant> variants = new ArrayList<>();
+        try (JsonParser parser = JSON_FACTORY.createParser(feedProduct.document(), feedProduct.offset(), feedProduct.length())) {
+            parser.nextToken();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.START_ARRAY && "variants".equals(field)) {
+                    readVariants(parser, variants);
+                    continue;
+                }
+                if (value == JsonToken.VALUE_NULL || value.isStructStart()) {
+                    parser.skipChildren();
+                    continue;
+                }
+                switch (field) {
+                    case "id" -> shopifyProductId = parser.getValueAsLong();
+                    case "title" -> title = parser.getValueAsString();
+                    case "handle" -> handle = parser.getValueAsString();
+                    case "product_type" -> productType = parser.getValueAsString();
+                    default -> {
+                    }
+                }
+            }
         } catch (Exception e) {
             logger.error("Error parsing product: {}", e.getMessage());
             return null;
         }
-    }
 
-    private List<ProductVariant> extractVariants(JsonNode variantsNode) {
-        List<ProductVariant> variants = new ArrayList<>();
+        // Validate required fields
+        if (shopifyProductId == null || title == null || title.trim().isEmpty() || handle == null || handle.trim().isEmpty()) {
+            logger.warn("Skipping product with missing id, title or handle: {}", shopifyProductId);
+            return null;
+        }
 
-        if (variantsNode == null || !variantsNode.isArray()) {
-            return variants;
+        long minPrice = variants.isEmpty() ? 0 : Long.MAX_VALUE;
+        for (ProductVariant variant : variants) {
+            minPrice = Math.min(minPrice, variant.getPriceMinorUnits());
         }
 
-        for (JsonNode variantNode : variantsNode) {
-            try {
-                Long variantId = variantNode.has("id") ? variantNode.get("id").asLong() : null;
-                String title = variantNode.has("title") ? variantNode.get("title").asText() : null;
-                String sku = variantNode.has("sku") ? variantNode.get("sku").asText(null) : null;
-                boolean available = variantNode.has("available") && variantNode.get("available").asBoolean();
+        return new Product(shopifyProductId, title, handle, minPrice, productType, variants);
+    }
 
-                BigDecimal price = BigDecimal.ZERO;
-                if (variantNode.has("price")) {
-                    String priceStr = variantNode.get("price").asText();
-                    try {
-                        price = new BigDecimal(priceStr);
-                    } catch (NumberFormatException e) {
-                        logger.warn("Invalid price format for variant {}: {}", variantId, priceStr);
+    private static void readVariants(JsonParser parser, List<ProductVariant> variants) throws IOException {
+        JsonToken element;
+        while ((element = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (element != JsonToken.START_OBJECT) {
+                logger.debug("Skipping malformed variant: {}", element);
+                parser.skipChildren();
+                continue;
+            }
+
+            Long variantId = null;
+            String title = null;
+            String sku = null;
+            boolean available = false;
+            long price = 0;
+            String invalidPrice = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.VALUE_NULL || value.isStructStart()) {
+                    parser.skipChildren();
+                    continue;
+                }
+                switch (field) {
+                    case "id" -> variantId = parser.getValueAsLong();
+                    case "title" -> title = parser.getValueAsString();
+                    case "sku" -> sku = parser.getValueAsString();
+                    case "available" -> available = parser.getValueAsBoolean();
+                    case "price" -> {
+                        try {
+                            price = parsePrice(parser);
+                        } catch (NumberFormatException | ArithmeticException e) {
+                            invalidPrice = parser.getText();
+                        }
+                    }
+                    default -> {
                     }
                 }
+            }
+            if (invalidPrice != null) {
+                logger.warn("Invalid price format for variant {}: {}", variantId, invalidPrice);
+            }
+
+            variants.add(new ProductVariant(variantId, title, price, sku, available));
+        }
+    }
 
-                variants.add(new ProductVariant(variantId, title, price, sku, available));
-            } catch (Exception variantError) {
-                logger.debug("Skipping malformed variant: {}", variantError.getMessage());
+    /**
+     * Shopify sends prices as strings such as {@code "499.00"}; their digits are read straight from the
+     * parser's token characters, so no string or {@code BigDecimal} is built per price. Numeric tokens
+     * are accepted as well; only those in exponent notation go through {@code BigDecimal}.
+     */
+    private static long parsePrice(JsonParser parser) throws IOException {
+        try {
+            return MinorUnits.parse(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength(),
+                    MinorUnits.scale(MinorUnits.DEFAULT_CURRENCY));
+        } catch (NumberFormatException e) {
+            if (parser.currentToken() != JsonToken.VALUE_NUMBER_FLOAT) {
+                throw e;
             }
+            return MinorUnits.fromDecimal(parser.getDecimalValue(), MinorUnits.DEFAULT_CURRENCY);
         }
+    }
 
-        return variants;
+    /** Per-store run counters, outcome of the last run and per-stage throughput and queue depth. */
+    public Map<String, Map<String, Object>> storeSyncStats() {
+        Map<String, Map<String, Object>> stats = new TreeMap<>();
+        storeMetrics.forEach((storeId, metrics) -> stats.put(storeId, metrics.toMap(runningPipelines.get(storeId))));
+        return stats;
     }
 
-    public void forceSyncProducts() {
-        logger.info("Manual product sync triggered");
-        syncProducts();
+    public boolean isSyncRunning() {
+        return !runningPipelines.isEmpty();
+    }
+
+    /** Cancels every running sync; returns the ids of the stores whose sync was cancelled. */
+    public List<String> cancelSync() {
+        List<String> cancelled = new ArrayList<>();
+        runningPipelines.forEach((storeId, pipeline) -> {
+            pipeline.cancel();
+            cancelled.add(storeId);
+        });
+        return cancelled;
+    }
+
+    @PreDestroy
+    public void cancelOnShutdown() {
+        cancelSync();
+    }
+
+    @FunctionalInterface
+    private interface StageWork {
+        void run() throws Exception;
+    }
+
+    /** One product of the feed, as the characters of its JSON object within the response document. */
+    private record FeedProduct(char[] document, int offset, int length) {
+    }
+
+    /** A product on its way to the write stage, with the stored row it replaces, if any. */
+    private record PendingWrite(Product product, Product stored) {
+    }
+
+    private static final class SyncRun {
+        private final StoreSyncProperties.Store store;
+        private volatile SqlScope sqlScope;
+        private volatile long generation;
+        private volatile boolean notModified;
+        private volatile boolean invalidFeed;
+        private final AtomicLong availableSlots = new AtomicLong();
+        private final Set<Long> seenShopifyIds = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger processed = new AtomicInteger();
+        private final AtomicInteger inserted = new AtomicInteger();
+        private final AtomicInteger updated = new AtomicInteger();
+        private final AtomicInteger skippedInvalid = new AtomicInteger();
+        private final AtomicInteger skippedByLimit = new AtomicInteger();
+        private final AtomicInteger skippedDeleted = new AtomicInteger();
+
+        private SyncRun(StoreSyncProperties.Store store) {
+            this.store = store;
+        }
+    }
+
+    private enum SyncOutcome {
+        COMPLETED(false), NOT_MODIFIED(false), CANCELLED(false), INVALID_FEED(true), UNAVAILABLE(true), FAILED(true);
+
+        private final boolean failure;
+
+        SyncOutcome(boolean failure) {
+            this.failure = failure;
+        }
+    }
+
+    private static final class StoreMetrics {
+        private final LongAdder runs = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder skipped = new LongAdder();
+        private volatile Instant lastStartedAt;
+        private volatile Duration lastDuration;
+        private volatile SyncOutcome lastOutcome;
+        private volatile long lastGeneration;
+        private volatile int lastProcessed;
+        private volatile int lastInserted;
+        private volatile int lastUpdated;
+        private volatile List<SyncPipeline.StageStats> lastStageStats = List.of();
+
+        private void finish(SyncRun run, SyncOutcome outcome, Duration duration, List<SyncPipeline.StageStats> stageStats) {
+            if (outcome.failure) {
+                failures.increment();
+            }
+            lastOutcome = outcome;
+            lastDuration = duration;
+            lastGeneration = run.generation;
+            lastProcessed = run.processed.get();
+            lastInserted = run.inserted.get();
+            lastUpdated = run.updated.get();
+            lastStageStats = stageStats;
+        }
+
+        private Map<String, Object> toMap(SyncPipeline running) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("running", running != null);
+            map.put("runs", runs.sum());
+            map.put("failures", failures.sum());
+            map.put("skipped", skipped.sum());
+            map.put("lastStartedAt", lastStartedAt);
+            map.put("lastDurationMillis", lastDuration != null ? lastDuration.toMillis() : null);
+            map.put("lastOutcome", lastOutcome);
+            map.put("lastGeneration", lastGeneration);
+            map.put("lastProcessed", lastProcessed);
+            map.put("lastInserted", lastInserted);
+            map.put("lastUpdated", lastUpdated);
+            List<SyncPipeline.StageStats> stages = running != null ? running.stats() : lastStageStats;
+            map.put("stages", stages.stream().map(SyncPipeline.StageStats::toMap).toList());
+            return map;
+        }
     }
 }
@@ -0,0 +1,155 @@
+package com.respiroc.gregfullstack.service;
+
+import com.respiroc.gregfullstack.config.FeedClientProperties;
+import com.respiroc.gregfullstack.config.StoreSyncProperties;
+import com.respiroc.gregfullstack.model.Product;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Syncs every configured store on its own fixed-rate schedule. Scheduled runs share a pool of
+ * {@code catalog.stores.parallelism} threads, so a slow store holds one thread while the others keep
+ * syncing. The first run of store {@code i} of {@code n} starts {@code i * interval / n} after
+ * {@code initial-delay}, which spreads the stores' write load across the interval.
+ * <p>
+ * Runs are single-flight per store: while a store is syncing, a scheduled tick for it is skipped and
+ * a manual request joins the running sync instead of starting or queueing another one.
+ */
+@Service
+public class StoreSyncScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(StoreSyncScheduler.class);
+
+    private final ProductSyncService productSyncService;
+    private final StoreSyncProperties properties;
+    private final List<StoreSyncProperties.Store> stores;
+    private final ScheduledExecutorService executor;
+    private final ExecutorService manualExecutor;
+    // Id of the running sync of each store
+    private final Map<String, String> runningSyncs = new ConcurrentHashMap<>();
+
+    public StoreSyncScheduler(ProductSyncService productSyncService,
+                              StoreSyncProperties properties,
+                              FeedClientProperties feedProperties) {
+        this.productSyncService = productSyncService;
+        this.properties = properties;
+        this.stores = properties.feeds().isEmpty()
+                ? List.of(new StoreSyncProperties.Store(Product.DEFAULT_STORE_ID, feedProperties.url()))
+                : List.copyOf(properties.feeds());
+
+        Set<String> ids = new HashSet<>();
+        for (StoreSyncProperties.Store store : stores) {
+            if (store.id() == null || store.id().isBlank() || store.url() == null) {
+                throw new IllegalStateException("Every entry of catalog.stores.feeds needs an id and a url");
+            }
+            if (!ids.add(store.id())) {
+                throw new IllegalStateException("Duplicate store id in catalog.stores.feeds: " + store.id());
+            }
+        }
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newScheduledThreadPool(Math.max(properties.parallelism(), 1), runnable -> {
+            Thread thread = new Thread(runnable, "store-sync-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Manual runs wait on their stage workers; single flight already bounds them to one per store
+        this.manualExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("store-sync-manual-", 1).factory());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void scheduleSyncs() {
+        long intervalMillis = Math.max(properties.interval().toMillis(), 1);
+        for (int i = 0; i < stores.size(); i++) {
+            StoreSyncProperties.Store store = stores.get(i);
+            Duration delay = startDelay(i);
+            // Fixed rate keeps the offsets between stores stable; a run that overruns delays only its own store
+            executor.scheduleAtFixedRate(() -> syncOnSchedule(store), delay.toMillis(), intervalMillis, TimeUnit.MILLISECONDS);
+            logger.info("Scheduled sync of store {} every {} starting in {}", store.id(), properties.interval(), delay);
+        }
+    }
+
+    /**
+     * Starts a full sync of every store in the background and returns without waiting for it. A store
+     * that is already syncing is not synced again; its running sync is reported instead.
+     *
+     * @return the id of the sync covering each store, by store id
+     */
+    public Map<String, String> syncAllNow() {
+        logger.info("Manual sync of {} stores triggered", stores.size());
+        Map<String, String> runIds = new LinkedHashMap<>();
+        for (StoreSyncProperties.Store store : stores) {
+            String runId = UUID.randomUUID().toString();
+            String running = runningSyncs.putIfAbsent(store.id(), runId);
+            if (running != null) {
+                logger.info("Store {} is already syncing as run {}; not starting another", store.id(), running);
+                runIds.put(store.id(), running);
+                continue;
+            }
+            try {
+                manualExecutor.execute(() -> sync(store, false, runId));
+            } catch (RejectedExecutionException e) {
+                runningSyncs.remove(store.id(), runId);
+                throw e;
+            }
+            runIds.put(store.id(), runId);
+        }
+        return runIds;
+    }
+
+    public List<StoreSyncProperties.Store> stores() {
+        return stores;
+    }
+
+    Duration startDelay(int index) {
+        return properties.initialDelay().plus(properties.interval().multipliedBy(index).dividedBy(stores.size()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        manualExecutor.shutdownNow();
+    }
+
+    private void syncOnSchedule(StoreSyncProperties.Store store) {
+        String runId = UUID.randomUUID().toString();
+        String running = runningSyncs.putIfAbsent(store.id(), runId);
+        if (running != null) {
+            logger.info("Store {} is still syncing as run {}; skipping this scheduled run", store.id(), running);
+            return;
+        }
+        sync(store, true, runId);
+    }
+
+    /** Runs a sync that has claimed its store in {@code runningSyncs} and releases the claim afterwards. */
+    private void sync(StoreSyncProperties.Store store, boolean conditional, String runId) {
+        logger.info("Sync run {} of store {} started", runId, store.id());
+        try {
+            productSyncService.syncStore(store, conditional);
+        } catch (RuntimeException e) {
+            // An exception would cancel the store's schedule
+            logger.error("Unexpected error in sync run {} of store {}: {}", runId, store.id(), e.getMessage(), e);
+        } finally {
+            runningSyncs.remove(store.id(), runId);
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.respiroc.gregfullstack.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A small staged producer/consumer pipeline. Each stage owns a bounded input queue and a fixed number
+ * of worker threads; {@link Stage#emit} blocks when the queue is full, which is what propagates
+ * backpressure upstream. Completion flows downstream: once every worker of a stage has seen the end
+ * of its input, the next stage's input is completed.
+ *
+ * <p>Stages are declared from the last to the first so that each handler can emit into the next stage.
+ */
+final class SyncPipeline implements AutoCloseable {
+
+    private static final Object END = new Object();
+    private static final long POLL_MILLIS = 100;
+
+    private final String name;
+    private final ExecutorService executor;
+    private final List<Stage<?>> stages = new ArrayList<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private volatile boolean cancelled;
+    private long startedNanos;
+    private long finishedNanos;
+
+    SyncPipeline(String name) {
+        this.name = name;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @FunctionalInterface
+    interface StageHandler<I> {
+        void handle(List<I> batch) throws Exception;
+    }
+
+    <I> Stage<I> stage(String stageName, int workers, int queueCapacity, int batchSize, Stage<?> downstream, StageHandler<I> handler) {
+        Stage<I> stage = new Stage<>(stageName, Math.max(workers, 1), Math.max(queueCapacity, 1), Math.max(batchSize, 1), downstream, handler);
+        stages.addFirst(stage);
+        return stage;
+    }
+
+    void start() {
+        startedNanos = System.nanoTime();
+        for (Stage<?> stage : stages) {
+            for (int i = 0; i < stage.workers; i++) {
+                executor.execute(stage::runWorker);
+            }
+        }
+    }
+
+    /** Blocks until every stage has drained, the pipeline was cancelled or a stage failed. */
+    void await() throws InterruptedException, ExecutionException {
+        for (Stage<?> stage : stages) {
+            stage.done.await();
+        }
+        finishedNanos = System.nanoTime();
+        Throwable error = failure.get();
+        if (error != null) {
+            throw new ExecutionException("Pipeline " + name + " failed", error);
+        }
+        if (cancelled) {
+            throw new CancellationException("Pipeline " + name + " was cancelled");
+        }
+    }
+
+    /** Stops all stages; workers blocked in I/O are interrupted. */
+    void cancel() {
+        cancelled = true;
+        executor.shutdownNow();
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    List<StageStats> stats() {
+        long end = finishedNanos != 0 ? finishedNanos : System.nanoTime();
+        double seconds = Math.max(end - startedNanos, 1) / 1_000_000_000.0;
+        return stages.stream().map(stage -> stage.stats(seconds)).toList();
+    }
+
+    @Override
+    public void close() {
+        cancelled = cancelled || finishedNanos == 0;
+        executor.shutdownNow();
+    }
+
+    record StageStats(String stage, int workers, long items, double itemsPerSecond, double busyRatio,
+                      long maxQueueDepth, double meanQueueDepth) {
+
+        Map<String, Object> toMap() {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("stage", stage);
+            values.put("workers", workers);
+            values.put("items", items);
+            values.put("itemsPerSecond", itemsPerSecond);
+            values.put("busyRatio", busyRatio);
+            values.put("maxQueueDepth", maxQueueDepth);
+            values.put("meanQueueDepth", meanQueueDepth);
+            return values;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s[workers=%d, items=%d, %.1f/s, busy=%.0f%%, queue max=%d mean=%.1f]",
+                    stage, workers, items, itemsPerSecond, busyRatio * 100, maxQueueDepth, meanQueueDepth);
+        }
+    }
+
+    final class Stage<I> {
+
+        private final String stageName;
+        private final int workers;
+        private final int batchSize;
+        private final BlockingQueue<Object> queue;
+        private final Stage<?> downstream;
+        private final StageHandler<I> handler;
+        private final AtomicInteger remainingWorkers;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private final LongAdder items = new LongAdder();
+        private final LongAdder busyNanos = new LongAdder();
+        private final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+        private final LongAdder depthSamples = new LongAdder();
+        private final LongAdder depthTotal = new LongAdder();
+
+        private Stage(String stageName, int workers, int queueCapacity, int batchSize, Stage<?> downstream, StageHandler<I> handler) {
+            this.stageName = stageName;
+            this.workers = workers;
+            this.batchSize = batchSize;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.downstream = downstream;
+            this.handler = handler;
+            this.remainingWorkers = new AtomicInteger(workers);
+        }
+
+        /** Hands an item to this stage, blocking while its queue is full. */
+        void emit(I item) throws InterruptedException {
+            int depth = queue.size();
+            maxDepth.accumulate(depth);
+            depthTotal.add(depth);
+            depthSamples.increment();
+            offer(item);
+        }
+
+        /** Signals that no more input will be emitted into this stage. */
+        void complete() throws InterruptedException {
+            for (int i = 0; i < workers; i++) {
+                offer(END);
+            }
+        }
+
+        private void offer(Object item) throws InterruptedException {
+            while (!queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (cancelled) {
+                    throw new CancellationException("Pipeline " + name + " was cancelled");
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void runWorker() {
+            List<I> batch = new ArrayList<>(batchSize);
+            boolean ended = false;
+            try {
+                while (!ended && !cancelled) {
+                    Object first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    if (first == END) {
+                        break;
+                    }
+                    batch.add((I) first);
+                    while (batch.size() < batchSize) {
+                        Object next = queue.poll();
+                        if (next == null) {
+                            break;
+                        }
+                        if (next == END) {
+                            ended = true;
+                            break;
+                        }
+                        batch.add((I) next);
+                    }
+
+                    long start = System.nanoTime();
+                    handler.handle(batch);
+                    busyNanos.add(System.nanoTime() - start);
+                    items.add(batch.size());
+                    batch.clear();
+                }
+                if (remainingWorkers.decrementAndGet() == 0 && downstream != null && !cancelled) {
+                    downstream.complete();
+                }
+            } catch (InterruptedException | CancellationException e) {
+                cancelled = true;
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+                cancelled = true;
+            } finally {
+                if (remainingWorkers.get() <= 0 || cancelled) {
+                    done.countDown();
+                }
+            }
+        }
+
+        private StageStats stats(double seconds) {
+            long samples = depthSamples.sum();
+            return new StageStats(stageName, workers, items.sum(), items.sum() / seconds,
+                    Math.min(busyNanos.sum() / (seconds * 1_000_000_000.0 * workers), 1.0),
+                    maxDepth.get(), samples == 0 ? 0.0 : (double) depthTotal.sum() / samples);
+        }
+    }
+}
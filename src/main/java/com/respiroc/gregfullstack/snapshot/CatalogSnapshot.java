@@ -0,0 +1,300 @@
+package com.respiroc.gregfullstack.snapshot;
+
+import com.respiroc.gregfullstack.model.MinorUnits;
+import com.respiroc.gregfullstack.model.Product;
+import com.respiroc.gregfullstack.model.ProductVariant;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * A read-only, memory-mapped catalog snapshot. Lookups binary-search the offset indexes and decode a
+ * product straight from the mapping, so only the products actually returned are materialized on the
+ * heap. The file is mapped as one {@link MemorySegment}, which is addressed with {@code long} offsets
+ * and so is not limited to 2 GB like a {@code MappedByteBuffer}.
+ *
+ * <p>Layout (big-endian): a {@value #HEADER_SIZE}-byte header (magic, version, generation, creation
+ * time, product count, shopify index size, index and store table offsets and a CRC32C of everything
+ * after the header), the product records in listing order, an ordinal index of record offsets, a
+ * {@code (id, offset)} index sorted by id, a {@code (store, shopify_product_id, offset)} index sorted
+ * by store and Shopify id, and the table of store ids the store numbers refer to. Prices are stored
+ * as minor units followed by the ISO 4217 numeric currency code.
+ */
+public final class CatalogSnapshot {
+
+    static final int MAGIC = 0x47464353; // "GFCS"
+    static final int VERSION = 4;
+    static final int HEADER_SIZE = 72;
+    static final long NULL_LONG = Long.MIN_VALUE;
+
+    static final int ID_INDEX_ENTRY_SIZE = 2 * Long.BYTES;
+    static final int SHOPIFY_INDEX_ENTRY_SIZE = Integer.BYTES + 2 * Long.BYTES;
+
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final int TITLE_OFFSET = 5 * Long.BYTES;
+    private static final long CHECKSUM_CHUNK = 1L << 30;
+
+    private final Path path;
+    private final MemorySegment segment;
+    private final long generation;
+    private final Instant createdAt;
+    private final int productCount;
+    private final int shopifyIndexCount;
+    private final long ordinalIndexOffset;
+    private final long idIndexOffset;
+    private final long shopifyIndexOffset;
+    private final Map<String, Integer> storeNumbers = new HashMap<>();
+
+    private CatalogSnapshot(Path path, MemorySegment segment) {
+        this.path = path;
+        this.segment = segment;
+        this.generation = segment.get(LONG, 8);
+        this.createdAt = Instant.ofEpochMilli(segment.get(LONG, 16));
+        this.productCount = segment.get(INT, 24);
+        this.shopifyIndexCount = segment.get(INT, 28);
+        this.ordinalIndexOffset = segment.get(LONG, 32);
+        this.idIndexOffset = segment.get(LONG, 40);
+        this.shopifyIndexOffset = segment.get(LONG, 48);
+
+        long storeTable = segment.get(LONG, 56);
+        int stores = segment.get(INT, storeTable);
+        long position = storeTable + Integer.BYTES;
+        for (int store = 0; store < stores; store++) {
+            storeNumbers.put(readString(position), store);
+            position += Integer.BYTES + segment.get(INT, position);
+        }
+    }
+
+    /**
+     * Maps the file and verifies its header and checksum. The mapping belongs to an automatic arena and
+     * is released once the snapshot is no longer reachable, as a {@code MappedByteBuffer} would be.
+     */
+    public static CatalogSnapshot open(Path path) throws IOException {
+        MemorySegment segment;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException("Unexpected catalog snapshot size " + size + " for " + path);
+            }
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, size, Arena.ofAuto());
+        }
+
+        if (segment.get(INT, 0) != MAGIC) {
+            throw new IOException("Not a catalog snapshot: " + path);
+        }
+        if (segment.get(INT, 4) != VERSION) {
+            throw new IOException("Unsupported catalog snapshot version " + segment.get(INT, 4) + " in " + path);
+        }
+        CRC32C checksum = new CRC32C();
+        for (long offset = HEADER_SIZE; offset < segment.byteSize(); offset += CHECKSUM_CHUNK) {
+            checksum.update(segment.asSlice(offset, Math.min(CHECKSUM_CHUNK, segment.byteSize() - offset)).asByteBuffer());
+        }
+        if (checksum.getValue() != segment.get(LONG, 64)) {
+            throw new IOException("Catalog snapshot checksum mismatch in " + path);
+        }
+        return new CatalogSnapshot(path, segment);
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    public long generation() {
+        return generation;
+    }
+
+    public Instant createdAt() {
+        return createdAt;
+    }
+
+    public long count() {
+        return productCount;
+    }
+
+    public List<Product> findPage(int offset, int limit) {
+        return streamPage(offset, limit).toList();
+    }
+
+    /** Decodes the products of a page lazily, one record at a time. */
+    public Stream<Product> streamPage(int offset, int limit) {
+        int from = (int) Math.min(Math.max(offset, 0), productCount);
+        int to = (int) Math.min((long) from + Math.max(limit, 0), productCount);
+        return IntStream.range(from, to).mapToObj(ordinal -> readProduct(recordOffset(ordinal)));
+    }
+
+    public Optional<Product> findById(long id) {
+        int low = 0;
+        int high = productCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long entry = idIndexOffset + (long) mid * ID_INDEX_ENTRY_SIZE;
+            int comparison = Long.compare(segment.get(LONG, entry), id);
+            if (comparison < 0) {
+                low = mid + 1;
+            } else if (comparison > 0) {
+                high = mid - 1;
+            } else {
+                return Optional.of(readProduct(segment.get(LONG, entry + Long.BYTES)));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /** Shopify ids are only unique within a store. */
+    public Optional<Product> findByShopifyProductId(String storeId, long shopifyProductId) {
+        Integer store = storeNumbers.get(storeId);
+        if (store == null) {
+            return Optional.empty();
+        }
+        int low = 0;
+        int high = shopifyIndexCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long entry = shopifyIndexOffset + (long) mid * SHOPIFY_INDEX_ENTRY_SIZE;
+            int comparison = Integer.compare(segment.get(INT, entry), store);
+            if (comparison == 0) {
+                comparison = Long.compare(segment.get(LONG, entry + Integer.BYTES), shopifyProductId);
+            }
+            if (comparison < 0) {
+                low = mid + 1;
+            } else if (comparison > 0) {
+                high = mid - 1;
+            } else {
+                return Optional.of(readProduct(segment.get(LONG, entry + Integer.BYTES + Long.BYTES)));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /** Case-insensitive substring match on the title, in listing order. Only titles are decoded while scanning. */
+    public List<Product> searchByTitle(String query) {
+        if (query == null || query.isBlank()) {
+            return List.of();
+        }
+        String needle = query.trim().toLowerCase(Locale.ROOT);
+        List<Product> matches = new ArrayList<>();
+        for (int ordinal = 0; ordinal < productCount; ordinal++) {
+            long record = recordOffset(ordinal);
+            String title = readString(record + TITLE_OFFSET);
+            if (title != null && title.toLowerCase(Locale.ROOT).contains(needle)) {
+                matches.add(readProduct(record));
+            }
+        }
+        return matches;
+    }
+
+    private long recordOffset(int ordinal) {
+        return segment.get(LONG, ordinalIndexOffset + (long) ordinal * Long.BYTES);
+    }
+
+    private Product readProduct(long offset) {
+        Cursor cursor = new Cursor(offset);
+        Product product = new Product()
+                .setId(cursor.nextLong())
+                .setShopifyProductId(cursor.nextLong())
+                .setCreatedAt(fromEpochMicros(cursor.nextLong()))
+                .setUpdatedAt(fromEpochMicros(cursor.nextLong()))
+                .setLastSeenGeneration(cursor.nextLong())
+                .setTitle(cursor.nextString())
+                .setHandle(cursor.nextString())
+                .setPriceMinorUnits(cursor.nextPrice())
+                .setCurrency(cursor.nextCurrency())
+                .setProductType(cursor.nextString())
+                .setStoreId(cursor.nextString());
+
+        int variantCount = cursor.nextInt();
+        List<ProductVariant> variants = new ArrayList<>(variantCount);
+        for (int i = 0; i < variantCount; i++) {
+            ProductVariant variant = new ProductVariant()
+                    .setShopifyVariantId(cursor.nextLong())
+                    .setTitle(cursor.nextString())
+                    .setPriceMinorUnits(cursor.nextPrice())
+                    .setCurrency(cursor.nextCurrency())
+                    .setSku(cursor.nextString())
+                    .setAvailable(cursor.nextBoolean());
+            variants.add(variant);
+        }
+        return product.setVariants(variants);
+    }
+
+    private String readString(long offset) {
+        int length = segment.get(INT, offset);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, offset + Integer.BYTES, bytes, 0, length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static LocalDateTime fromEpochMicros(Long micros) {
+        if (micros == null) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    /** Sequential reader over one record; the segment has no position, so readers never interfere. */
+    private final class Cursor {
+
+        private long position;
+
+        Cursor(long position) {
+            this.position = position;
+        }
+
+        Long nextLong() {
+            long value = segment.get(LONG, position);
+            position += Long.BYTES;
+            return value == NULL_LONG ? null : value;
+        }
+
+        int nextInt() {
+            int value = segment.get(INT, position);
+            position += Integer.BYTES;
+            return value;
+        }
+
+        boolean nextBoolean() {
+            return segment.get(ValueLayout.JAVA_BYTE, position++) != 0;
+        }
+
+        String nextString() {
+            String value = readString(position);
+            position += Integer.BYTES + Math.max(segment.get(INT, position), 0);
+            return value;
+        }
+
+        long nextPrice() {
+            long value = segment.get(LONG, position);
+            position += Long.BYTES;
+            return value;
+        }
+
+        Currency nextCurrency() {
+            return MinorUnits.ofNumericCode(nextInt());
+        }
+    }
+}
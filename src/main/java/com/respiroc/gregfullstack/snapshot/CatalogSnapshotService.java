@@ -0,0 +1,113 @@
+package com.respiroc.gregfullstack.snapshot;
+
+import com.respiroc.gregfullstack.config.CatalogSnapshotProperties;
+import com.respiroc.gregfullstack.repository.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the mapped {@link CatalogSnapshot} current: the file left by the previous run is mapped on
+ * startup, and a new one is written and swapped in after every completed sync. An admin write drops
+ * the mapped snapshot at once and rebuilds it in the background.
+ */
+@Service
+public class CatalogSnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogSnapshotService.class);
+
+    private final ProductRepository productRepository;
+    private final CatalogSnapshotProperties properties;
+    private final ExecutorService rebuildExecutor;
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+    private volatile CatalogSnapshot current;
+    // Generation of the last snapshot mapped, kept when an admin write drops it
+    private volatile Long generation;
+
+    public CatalogSnapshotService(ProductRepository productRepository, CatalogSnapshotProperties properties) {
+        this.productRepository = productRepository;
+        this.properties = properties;
+        this.rebuildExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("catalog-snapshot-", 1).factory());
+    }
+
+    @PostConstruct
+    void load() {
+        if (!properties.enabled() || !Files.exists(properties.path())) {
+            return;
+        }
+        try {
+            current = CatalogSnapshot.open(properties.path());
+            generation = current.generation();
+            logger.info("Mapped catalog snapshot {} (generation {}, {} products)",
+                    properties.path(), current.generation(), current.count());
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Ignoring unreadable catalog snapshot {}: {}", properties.path(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    public Optional<CatalogSnapshot> current() {
+        return Optional.ofNullable(current);
+    }
+
+    /**
+     * Drops the mapped snapshot after an add, edit or delete and rebuilds it for the same generation,
+     * so a fallback never serves a deleted product or an overwritten edit. Writes arriving while a
+     * rebuild is queued share it; one arriving while it runs queues another.
+     */
+    public void invalidate() {
+        Long last = generation;
+        if (!properties.enabled() || last == null) {
+            return;
+        }
+        current = null;
+        if (rebuildPending.compareAndSet(false, true)) {
+            rebuildExecutor.execute(() -> {
+                rebuildPending.set(false);
+                refresh(generation);
+            });
+        }
+    }
+
+    /**
+     * Writes a snapshot of the live catalog for the given sync generation and maps it. Stores sync in
+     * parallel, so refreshes are serialized to keep an older snapshot from replacing a newer one.
+     */
+    public synchronized void refresh(long generation) {
+        if (!properties.enabled()) {
+            return;
+        }
+        long started = System.nanoTime();
+        try (CatalogSnapshotWriter writer = new CatalogSnapshotWriter(properties.path(), generation)) {
+            productRepository.forEachProduct(product -> {
+                try {
+                    writer.append(product);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.commit();
+            current = CatalogSnapshot.open(properties.path());
+            this.generation = generation;
+            logger.info("Wrote catalog snapshot for generation {} ({} products) in {} ms",
+                    generation, current.count(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to write catalog snapshot: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.respiroc.gregfullstack.snapshot;
+
+import com.respiroc.gregfullstack.model.Product;
+import com.respiroc.gregfullstack.model.ProductVariant;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+import static com.respiroc.gregfullstack.snapshot.CatalogSnapshot.HEADER_SIZE;
+import static com.respiroc.gregfullstack.snapshot.CatalogSnapshot.MAGIC;
+import static com.respiroc.gregfullstack.snapshot.CatalogSnapshot.NULL_LONG;
+import static com.respiroc.gregfullstack.snapshot.CatalogSnapshot.VERSION;
+
+/**
+ * Writes a {@link CatalogSnapshot} file. Products are appended in listing order to a temporary file
+ * next to the target; {@link #commit()} appends the indexes, fills in the header and atomically
+ * replaces the target, so readers never observe a half-written snapshot.
+ */
+public final class CatalogSnapshotWriter implements AutoCloseable {
+
+    private final Path target;
+    private final Path temporary;
+    private final long generation;
+    private final CRC32C checksum = new CRC32C();
+    private final DataOutputStream out;
+    private long position = HEADER_SIZE;
+    private int count;
+    private long[] ids = new long[256];
+    private long[] storeNumbers = new long[256];
+    private long[] shopifyIds = new long[256];
+    private long[] offsets = new long[256];
+    private final Map<String, Integer> stores = new LinkedHashMap<>();
+    private boolean committed;
+
+    public CatalogSnapshotWriter(Path target, long generation) throws IOException {
+        this.target = target;
+        this.generation = generation;
+        Path directory = target.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        this.temporary = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+
+        OutputStream file = Files.newOutputStream(temporary, StandardOpenOption.TRUNCATE_EXISTING);
+        file.write(new byte[HEADER_SIZE]);
+        this.out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), checksum));
+    }
+
+    public void append(Product product) throws IOException {
+        if (count == offsets.length) {
+            ids = Arrays.copyOf(ids, count * 2);
+            storeNumbers = Arrays.copyOf(storeNumbers, count * 2);
+            shopifyIds = Arrays.copyOf(shopifyIds, count * 2);
+            offsets = Arrays.copyOf(offsets, count * 2);
+        }
+        ids[count] = product.getId();
+        storeNumbers[count] = stores.computeIfAbsent(product.getStoreId(), ignored -> stores.size());
+        shopifyIds[count] = product.getShopifyProductId() != null ? product.getShopifyProductId() : NULL_LONG;
+        offsets[count] = position;
+        count++;
+
+        writeLong(product.getId());
+        writeLong(product.getShopifyProductId());
+        writeLong(toEpochMicros(product.getCreatedAt()));
+        writeLong(toEpochMicros(product.getUpdatedAt()));
+        writeLong(product.getLastSeenGeneration());
+        writeString(product.getTitle());
+        writeString(product.getHandle());
+        writeLong(product.getPriceMinorUnits());
+        writeInt(product.getCurrency().getNumericCode());
+        writeString(product.getProductType());
+        writeString(product.getStoreId());
+
+        writeInt(product.getVariants().size());
+        for (ProductVariant variant : product.getVariants()) {
+            writeLong(variant.getShopifyVariantId());
+            writeString(variant.getTitle());
+            writeLong(variant.getPriceMinorUnits());
+            writeInt(variant.getCurrency().getNumericCode());
+            writeString(variant.getSku());
+            out.writeBoolean(variant.isAvailable());
+            position++;
+        }
+    }
+
+    /** Writes the indexes and header and moves the snapshot into place. */
+    public void commit() throws IOException {
+        long ordinalIndexOffset = position;
+        for (int i = 0; i < count; i++) {
+            writeLong(offsets[i]);
+        }
+
+        long idIndexOffset = position;
+        for (int i : sortedOrdinals(ids)) {
+            writeLong(ids[i]);
+            writeLong(offsets[i]);
+        }
+
+        // Shopify ids are only unique within a store, so this index is keyed by (store, shopify id)
+        long shopifyIndexOffset = position;
+        int shopifyIndexCount = 0;
+        for (int i : sortedOrdinals(storeNumbers, shopifyIds)) {
+            if (shopifyIds[i] != NULL_LONG) {
+                writeInt((int) storeNumbers[i]);
+                writeLong(shopifyIds[i]);
+                writeLong(offsets[i]);
+                shopifyIndexCount++;
+            }
+        }
+
+        long storeTableOffset = position;
+        writeInt(stores.size());
+        for (String store : stores.keySet()) {
+            writeString(store);
+        }
+        out.close();
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                .putInt(MAGIC)
+                .putInt(VERSION)
+                .putLong(generation)
+                .putLong(System.currentTimeMillis())
+                .putInt(count)
+                .putInt(shopifyIndexCount)
+                .putLong(ordinalIndexOffset)
+                .putLong(idIndexOffset)
+                .putLong(shopifyIndexOffset)
+                .putLong(storeTableOffset)
+                .putLong(checksum.getValue())
+                .flip();
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        }
+
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        committed = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!committed) {
+            out.close();
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Ordinals of the appended products sorted by the given keys, most significant first. An LSD radix
+     * sort over the key bytes: stable, linear in the product count and free of boxing.
+     */
+    private int[] sortedOrdinals(long[]... keys) {
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        int[] sorted = new int[count];
+        int[] buckets = new int[257];
+        for (int k = keys.length - 1; k >= 0 && count > 0; k--) {
+            long[] key = keys[k];
+            for (int shift = 0; shift < Long.SIZE; shift += Byte.SIZE) {
+                Arrays.fill(buckets, 0);
+                for (int i = 0; i < count; i++) {
+                    buckets[digit(key[order[i]], shift) + 1]++;
+                }
+                if (buckets[digit(key[order[0]], shift) + 1] == count) {
+                    continue; // every key has the same byte here
+                }
+                for (int b = 0; b < 256; b++) {
+                    buckets[b + 1] += buckets[b];
+                }
+                for (int i = 0; i < count; i++) {
+                    sorted[buckets[digit(key[order[i]], shift)]++] = order[i];
+                }
+                int[] previous = order;
+                order = sorted;
+                sorted = previous;
+            }
+        }
+        return order;
+    }
+
+    /** Byte of the key at {@code shift}, with the sign bit flipped so that negative keys sort first. */
+    private static int digit(long key, int shift) {
+        return (int) ((key ^ Long.MIN_VALUE) >>> shift) & 0xFF;
+    }
+
+    private void writeLong(Long value) throws IOException {
+        out.writeLong(value != null ? value : NULL_LONG);
+        position += Long.BYTES;
+    }
+
+    private void writeInt(int value) throws IOException {
+        out.writeInt(value);
+        position += Integer.BYTES;
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeInt(bytes.length);
+        out.write(bytes);
+        position += bytes.length;
+    }
+
+    private static Long toEpochMicros(LocalDateTime value) {
+        if (value == null) {
+            return null;
+        }
+        return value.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + value.getNano() / 1_000;
+    }
+}
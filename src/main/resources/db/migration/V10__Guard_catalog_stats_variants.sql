@@ -0,0 +1,19 @@
+-- jsonb_array_elements fails on anything but an array, so one product whose variants are an object or
+-- a scalar would make every refresh of catalog_stats fail; such products now count no variants
+DROP MATERIALIZED VIEW catalog_stats;
+
+CREATE MATERIALIZED VIEW catalog_stats AS
+SELECT 1 AS id,
+       (SELECT COUNT(*) FROM products WHERE deleted_at IS NULL) AS total_products,
+       (SELECT MIN(price) FROM products WHERE deleted_at IS NULL) AS min_price,
+       (SELECT ROUND(AVG(price), 2) FROM products WHERE deleted_at IS NULL) AS avg_price,
+       (SELECT MAX(price) FROM products WHERE deleted_at IS NULL) AS max_price,
+       COALESCE(SUM(CASE WHEN (v.variant ->> 'available')::boolean THEN 1 ELSE 0 END), 0) AS available_variants,
+       COALESCE(SUM(CASE WHEN (v.variant ->> 'available')::boolean THEN 0 ELSE 1 END), 0) AS sold_out_variants,
+       CURRENT_TIMESTAMP AS refreshed_at
+FROM products p
+CROSS JOIN LATERAL jsonb_array_elements(
+    CASE WHEN jsonb_typeof(p.variants) = 'array' THEN p.variants ELSE '[]'::jsonb END) AS v(variant)
+WHERE p.deleted_at IS NULL;
+
+CREATE UNIQUE INDEX idx_catalog_stats_id ON catalog_stats(id);
@@ -0,0 +1,53 @@
+-- Prices are read back as minor units, so mapping a row needs no decimal parsing. DECIMAL(10, 2) also
+-- rounded three-decimal currencies and overflowed above 10^8 in zero-decimal ones; the decimal
+-- columns become unconstrained NUMERIC, which keeps the scale each price was written with.
+ALTER TABLE products
+    ADD COLUMN price_minor_units BIGINT;
+
+-- Existing prices were written with the scale of their variants' currency, NOK unless stated
+UPDATE products
+SET price_minor_units = ROUND(price * CASE
+    WHEN COALESCE(variants -> 0 ->> 'currency', 'NOK') IN ('BIF', 'CLP', 'DJF', 'GNF', 'ISK', 'JPY', 'KMF', 'KRW',
+                                                         'PYG', 'RWF', 'UGX', 'UYI', 'VND', 'VUV', 'XAF', 'XOF', 'XPF') THEN 1
+    WHEN COALESCE(variants -> 0 ->> 'currency', 'NOK') IN ('BHD', 'IQD', 'JOD', 'KWD', 'LYD', 'OMR', 'TND') THEN 1000
+    WHEN COALESCE(variants -> 0 ->> 'currency', 'NOK') IN ('CLF', 'UYW') THEN 10000
+    ELSE 100
+END);
+
+ALTER TABLE products
+    ALTER COLUMN price_minor_units SET NOT NULL;
+
+-- Views reading products.price have to go while its type changes
+DROP MATERIALIZED VIEW catalog_stats;
+DROP MATERIALIZED VIEW catalog_recent_products;
+
+ALTER TABLE products
+    ALTER COLUMN price TYPE NUMERIC;
+ALTER TABLE price_history
+    ALTER COLUMN old_price TYPE NUMERIC,
+    ALTER COLUMN new_price TYPE NUMERIC;
+
+CREATE MATERIALIZED VIEW catalog_stats AS
+SELECT 1 AS id,
+       (SELECT COUNT(*) FROM products WHERE deleted_at IS NULL) AS total_products,
+       (SELECT MIN(price) FROM products WHERE deleted_at IS NULL) AS min_price,
+       (SELECT ROUND(AVG(price), 2) FROM products WHERE deleted_at IS NULL) AS avg_price,
+       (SELECT MAX(price) FROM products WHERE deleted_at IS NULL) AS max_price,
+       COALESCE(SUM(CASE WHEN (v.variant ->> 'available')::boolean THEN 1 ELSE 0 END), 0) AS available_variants,
+       COALESCE(SUM(CASE WHEN (v.variant ->> 'available')::boolean THEN 0 ELSE 1 END), 0) AS sold_out_variants,
+       CURRENT_TIMESTAMP AS refreshed_at
+FROM products p
+CROSS JOIN LATERAL jsonb_array_elements(
+    CASE WHEN jsonb_typeof(p.variants) = 'array' THEN p.variants ELSE '[]'::jsonb END) AS v(variant)
+WHERE p.deleted_at IS NULL;
+
+CREATE UNIQUE INDEX idx_catalog_stats_id ON catalog_stats(id);
+
+CREATE MATERIALIZED VIEW catalog_recent_products AS
+SELECT id, store_id, title, price, product_type, updated_at
+FROM products
+WHERE deleted_at IS NULL
+ORDER BY updated_at DESC, id DESC
+LIMIT 10;
+
+CREATE UNIQUE INDEX idx_catalog_recent_products_id ON catalog_recent_products(id);
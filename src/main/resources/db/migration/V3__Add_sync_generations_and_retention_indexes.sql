@@ -0,0 +1,16 @@
+-- Track every sync run so background jobs can reason about "generations"
+CREATE TABLE sync_runs (
+    generation BIGSERIAL PRIMARY KEY,
+    started_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    completed_at TIMESTAMP WITH TIME ZONE
+);
+
+-- Generation of the last sync run that saw the product in the feed
+ALTER TABLE products
+    ADD COLUMN last_seen_generation BIGINT;
+
+-- Retention walks products from oldest to newest; keep that an index range scan
+CREATE INDEX idx_products_updated_at ON products(updated_at, id);
+
+-- Supports the "not seen in the last N syncs" retention policy
+CREATE INDEX idx_products_last_seen_generation ON products(last_seen_generation);
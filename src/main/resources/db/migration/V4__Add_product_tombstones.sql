@@ -0,0 +1,22 @@
+-- Soft delete: a product is a tombstone once deleted_at is set
+ALTER TABLE products
+    ADD COLUMN deleted_at TIMESTAMP WITH TIME ZONE;
+
+-- Shopify ids of purged tombstones, so the sync does not resurrect them
+CREATE TABLE product_tombstones (
+    shopify_product_id BIGINT PRIMARY KEY,
+    deleted_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+-- Read paths only ever look at live rows
+CREATE INDEX idx_products_live_created_at ON products(created_at DESC) WHERE deleted_at IS NULL;
+
+-- Retention only trims live rows
+DROP INDEX idx_products_updated_at;
+CREATE INDEX idx_products_updated_at ON products(updated_at, id) WHERE deleted_at IS NULL;
+
+DROP INDEX idx_products_last_seen_generation;
+CREATE INDEX idx_products_last_seen_generation ON products(last_seen_generation) WHERE deleted_at IS NULL;
+
+-- Lets the purger find tombstones without scanning live rows
+CREATE INDEX idx_products_deleted_at ON products(deleted_at) WHERE deleted_at IS NOT NULL;
@@ -0,0 +1,30 @@
+-- Append-only log of variant price changes, one partition per month
+CREATE TABLE price_history (
+    shopify_product_id BIGINT NOT NULL,
+    shopify_variant_id BIGINT NOT NULL,
+    recorded_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    generation BIGINT,
+    old_price DECIMAL(10, 2),
+    new_price DECIMAL(10, 2) NOT NULL
+) PARTITION BY RANGE (recorded_at);
+
+-- Rows arrive in time order, so a BRIN index stays tiny and still prunes most blocks of a time range
+CREATE INDEX idx_price_history_recorded_at ON price_history USING BRIN (recorded_at) WITH (pages_per_range = 32);
+
+-- Series lookups for one product
+CREATE INDEX idx_price_history_product ON price_history(shopify_product_id, recorded_at);
+
+-- Creates the partition covering the month of the given date; no-op when it already exists
+CREATE FUNCTION create_price_history_partition(month_start DATE) RETURNS VOID AS $$
+DECLARE
+    lower_bound DATE := date_trunc('month', month_start)::DATE;
+    upper_bound DATE := (date_trunc('month', month_start) + INTERVAL '1 month')::DATE;
+BEGIN
+    EXECUTE format(
+        'CREATE TABLE IF NOT EXISTS %I PARTITION OF price_history FOR VALUES FROM (%L) TO (%L)',
+        'price_history_' || to_char(lower_bound, 'YYYY_MM'), lower_bound, upper_bound);
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT create_price_history_partition((CURRENT_DATE + make_interval(months => m))::DATE)
+FROM generate_series(0, 2) AS m;
@@ -0,0 +1,33 @@
+-- Products, tombstones, sync runs and price history belong to a storefront. Existing rows came from
+-- the single Famme feed.
+ALTER TABLE products
+    ADD COLUMN store_id VARCHAR(64) NOT NULL DEFAULT 'famme';
+
+ALTER TABLE products DROP CONSTRAINT products_shopify_product_id_key;
+ALTER TABLE products
+    ADD CONSTRAINT products_store_shopify_product_id_key UNIQUE (store_id, shopify_product_id);
+
+-- Covered by the unique index above
+DROP INDEX idx_products_shopify_id;
+
+-- Retention runs per store
+DROP INDEX idx_products_updated_at;
+CREATE INDEX idx_products_updated_at ON products(store_id, updated_at, id) WHERE deleted_at IS NULL;
+
+DROP INDEX idx_products_last_seen_generation;
+CREATE INDEX idx_products_last_seen_generation ON products(store_id, last_seen_generation) WHERE deleted_at IS NULL;
+
+ALTER TABLE product_tombstones
+    ADD COLUMN store_id VARCHAR(64) NOT NULL DEFAULT 'famme';
+ALTER TABLE product_tombstones DROP CONSTRAINT product_tombstones_pkey;
+ALTER TABLE product_tombstones ADD PRIMARY KEY (store_id, shopify_product_id);
+
+-- Generations stay globally increasing; each run records the store it synced
+ALTER TABLE sync_runs
+    ADD COLUMN store_id VARCHAR(64) NOT NULL DEFAULT 'famme';
+CREATE INDEX idx_sync_runs_store_completed ON sync_runs(store_id, generation) WHERE completed_at IS NOT NULL;
+
+ALTER TABLE price_history
+    ADD COLUMN store_id VARCHAR(64) NOT NULL DEFAULT 'famme';
+DROP INDEX idx_price_history_product;
+CREATE INDEX idx_price_history_product ON price_history(store_id, shopify_product_id, recorded_at);
@@ -0,0 +1,37 @@
+-- Precomputed home page statistics, refreshed CONCURRENTLY after each completed sync. Every view has
+-- a unique index, which REFRESH ... CONCURRENTLY requires.
+
+-- One row: product count, price range and variant availability over all live products
+CREATE MATERIALIZED VIEW catalog_stats AS
+SELECT 1 AS id,
+       (SELECT COUNT(*) FROM products WHERE deleted_at IS NULL) AS total_products,
+       (SELECT MIN(price) FROM products WHERE deleted_at IS NULL) AS min_price,
+       (SELECT ROUND(AVG(price), 2) FROM products WHERE deleted_at IS NULL) AS avg_price,
+       (SELECT MAX(price) FROM products WHERE deleted_at IS NULL) AS max_price,
+       COALESCE(SUM(CASE WHEN (v.variant ->> 'available')::boolean THEN 1 ELSE 0 END), 0) AS available_variants,
+       COALESCE(SUM(CASE WHEN (v.variant ->> 'available')::boolean THEN 0 ELSE 1 END), 0) AS sold_out_variants,
+       CURRENT_TIMESTAMP AS refreshed_at
+FROM products p
+CROSS JOIN LATERAL jsonb_array_elements(p.variants) AS v(variant)
+WHERE p.deleted_at IS NULL;
+
+CREATE UNIQUE INDEX idx_catalog_stats_id ON catalog_stats(id);
+
+-- Product count per type; untyped products are grouped under an empty string so the key is never NULL
+CREATE MATERIALIZED VIEW catalog_type_counts AS
+SELECT COALESCE(product_type, '') AS product_type, COUNT(*) AS products
+FROM products
+WHERE deleted_at IS NULL
+GROUP BY COALESCE(product_type, '');
+
+CREATE UNIQUE INDEX idx_catalog_type_counts_type ON catalog_type_counts(product_type);
+
+-- The most recently updated live products
+CREATE MATERIALIZED VIEW catalog_recent_products AS
+SELECT id, store_id, title, price, product_type, updated_at
+FROM products
+WHERE deleted_at IS NULL
+ORDER BY updated_at DESC, id DESC
+LIMIT 10;
+
+CREATE UNIQUE INDEX idx_catalog_recent_products_id ON catalog_recent_products(id);
@@ -0,0 +1,11 @@
+-- Products that predate sync generations, were added by hand or were bulk-loaded have no
+-- last_seen_generation, and "last_seen_generation < ?" never matches NULL, so the UNSEEN_SYNCS policy
+-- never expired them. Count them as seen by their store's latest completed sync.
+UPDATE products p
+SET last_seen_generation = COALESCE(
+        (SELECT MAX(r.generation) FROM sync_runs r WHERE r.store_id = p.store_id AND r.completed_at IS NOT NULL),
+        0)
+WHERE last_seen_generation IS NULL;
+
+ALTER TABLE products ALTER COLUMN last_seen_generation SET DEFAULT 0;
+ALTER TABLE products ALTER COLUMN last_seen_generation SET NOT NULL;
@@ -0,0 +1,26 @@
+-- Catches rows whose month has no partition yet, e.g. when the partition job has not run, instead of
+-- failing the insert and with it the product write it belongs to
+CREATE TABLE price_history_default PARTITION OF price_history DEFAULT;
+
+-- Creates the partition covering the month of the given date; no-op when it already exists. Rows of
+-- that month already in the default partition are moved into the new partition before it is attached.
+CREATE OR REPLACE FUNCTION create_price_history_partition(month_start DATE) RETURNS VOID AS $$
+DECLARE
+    lower_bound DATE := date_trunc('month', month_start)::DATE;
+    upper_bound DATE := (date_trunc('month', month_start) + INTERVAL '1 month')::DATE;
+    partition_name TEXT := 'price_history_' || to_char(lower_bound, 'YYYY_MM');
+BEGIN
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN;
+    END IF;
+
+    EXECUTE format('CREATE TABLE %I (LIKE price_history INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', partition_name);
+    EXECUTE format(
+        'WITH moved AS (DELETE FROM price_history_default WHERE recorded_at >= %L AND recorded_at < %L RETURNING *) '
+            || 'INSERT INTO %I SELECT * FROM moved',
+        lower_bound, upper_bound, partition_name);
+    EXECUTE format(
+        'ALTER TABLE price_history ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+        partition_name, lower_bound, upper_bound);
+END;
+$$ LANGUAGE plpgsql;
@@ -3,7 +3,7 @@ package com.respiroc.gregfullstack;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "sql.diagnostics.fail-on-budget-exceeded=true")
 class GregFullstackApplicationTests {
 
     @Test
@@ -0,0 +1,226 @@
+package com.respiroc.gregfullstack.client;
+
+import com.respiroc.gregfullstack.config.FeedClientProperties;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductFeedClientTest {
+
+    private static final String BODY = "{\"products\":[]}";
+
+    private HttpServer server;
+    private final List<HttpExchange> requests = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void decodesGzipBodies() {
+        respondWith(exchange -> {
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            send(exchange, 200, gzip(BODY));
+        });
+
+        Optional<String> body = client(3, 5).fetchProducts(feedUrl(), true);
+
+        assertEquals(Optional.of(BODY), body);
+        assertEquals("gzip", requests.getFirst().getRequestHeaders().getFirst("Accept-Encoding"));
+    }
+
+    @Test
+    void unchangedFeedCostsOneNotModified() {
+        respondWith(exchange -> {
+            if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                send(exchange, 304, new byte[0]);
+            } else {
+                exchange.getResponseHeaders().add("ETag", "\"v1\"");
+                send(exchange, 200, BODY.getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        ProductFeedClient client = client(3, 5);
+
+        assertEquals(Optional.of(BODY), client.fetchProducts(feedUrl(), true));
+        assertEquals(Optional.empty(), client.fetchProducts(feedUrl(), true));
+        assertEquals(Optional.of(BODY), client.fetchProducts(feedUrl(), false));
+        assertEquals(3, requests.size());
+    }
+
+    @Test
+    void retriesTransientFailures() {
+        AtomicInteger calls = new AtomicInteger();
+        respondWith(exchange -> {
+            if (calls.incrementAndGet() < 3) {
+                send(exchange, 503, new byte[0]);
+            } else {
+                send(exchange, 200, BODY.getBytes(StandardCharsets.UTF_8));
+            }
+        });
+
+        assertEquals(Optional.of(BODY), client(3, 5).fetchProducts(feedUrl(), true));
+        assertEquals(3, requests.size());
+    }
+
+    @Test
+    void doesNotRetryClientErrors() {
+        respondWith(exchange -> send(exchange, 404, new byte[0]));
+
+        assertThrows(FeedUnavailableException.class, () -> client(3, 5).fetchProducts(feedUrl(), true));
+        assertEquals(1, requests.size());
+    }
+
+    @Test
+    void openCircuitRejectsCallsWithoutHittingUpstream() {
+        respondWith(exchange -> send(exchange, 500, new byte[0]));
+        ProductFeedClient client = client(2, 2);
+
+        assertThrows(FeedUnavailableException.class, () -> client.fetchProducts(feedUrl(), true));
+        FeedUnavailableException rejected = assertThrows(FeedUnavailableException.class, () -> client.fetchProducts(feedUrl(), true));
+
+        assertTrue(rejected.getMessage().startsWith("Circuit open"));
+        assertEquals(2, requests.size());
+    }
+
+    @Test
+    void openCircuitOfOneFeedDoesNotAffectOthers() {
+        respondWith(exchange -> send(exchange, 500, new byte[0]));
+        server.createContext("/other.json", exchange -> send(exchange, 200, BODY.getBytes(StandardCharsets.UTF_8)));
+        ProductFeedClient client = client(1, 1);
+        URI otherUrl = feedUrl().resolve("/other.json");
+
+        assertThrows(FeedUnavailableException.class, () -> client.fetchProducts(feedUrl(), true));
+        assertThrows(FeedUnavailableException.class, () -> client.fetchProducts(feedUrl(), true));
+
+        assertEquals(Optional.of(BODY), client.fetchProducts(otherUrl, true));
+        assertEquals(1, requests.size());
+    }
+
+    @Test
+    void interruptedTrialCallDoesNotKeepTheCircuitOpen() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch trialReceived = new CountDownLatch(1);
+        CountDownLatch releaseTrial = new CountDownLatch(1);
+        respondWith(exchange -> {
+            int call = calls.incrementAndGet();
+            if (call == 1) {
+                send(exchange, 500, new byte[0]);
+                return;
+            }
+            if (call == 2) {
+                trialReceived.countDown();
+                try {
+                    releaseTrial.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            send(exchange, 200, BODY.getBytes(StandardCharsets.UTF_8));
+        });
+        ProductFeedClient client = new ProductFeedClient(new FeedClientProperties(feedUrl(), Duration.ofSeconds(1),
+                Duration.ofSeconds(5), 1, Duration.ofMillis(1), Duration.ofMillis(5), 1, Duration.ofMillis(50)));
+
+        assertThrows(FeedUnavailableException.class, () -> client.fetchProducts(feedUrl(), true));
+        Thread.sleep(100);
+
+        // The half-open trial is interrupted, as cancelling a sync does to its fetch stage
+        CompletableFuture<Throwable> trial = new CompletableFuture<>();
+        Thread caller = Thread.ofPlatform().start(() -> {
+            try {
+                client.fetchProducts(feedUrl(), true);
+                trial.complete(null);
+            } catch (Throwable e) {
+                trial.complete(e);
+            }
+        });
+        assertTrue(trialReceived.await(5, TimeUnit.SECONDS));
+        caller.interrupt();
+        assertInstanceOf(FeedUnavailableException.class, trial.get(5, TimeUnit.SECONDS));
+        releaseTrial.countDown();
+
+        assertEquals(Optional.of(BODY), client.fetchProducts(feedUrl(), true));
+    }
+
+    @Test
+    void slowUpstreamTimesOut() {
+        respondWith(exchange -> {
+            try {
+                Thread.sleep(1_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            send(exchange, 200, BODY.getBytes(StandardCharsets.UTF_8));
+        });
+
+        assertThrows(FeedUnavailableException.class, () -> client(1, 5).fetchProducts(feedUrl(), true));
+    }
+
+    private URI feedUrl() {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/products.json");
+    }
+
+    private ProductFeedClient client(int maxAttempts, int failureThreshold) {
+        return new ProductFeedClient(new FeedClientProperties(
+                feedUrl(),
+                Duration.ofSeconds(1),
+                Duration.ofMillis(200),
+                maxAttempts,
+                Duration.ofMillis(1),
+                Duration.ofMillis(5),
+                failureThreshold,
+                Duration.ofMinutes(1)));
+    }
+
+    private void respondWith(HttpHandler handler) {
+        server.createContext("/products.json", exchange -> {
+            requests.add(exchange);
+            handler.handle(exchange);
+        });
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static byte[] gzip(String value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(value.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,58 @@
+package com.respiroc.gregfullstack.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The home page is revalidated with an ETag derived from the statistics refresh, so an admin write
+ * must move it; otherwise browsers keep getting 304s for figures that no longer hold.
+ */
+@SpringBootTest(properties = "catalog.stores.initial-delay=PT1H")
+@AutoConfigureMockMvc
+class HomePageEtagTest {
+
+    private static final String HANDLE = "etag-probe";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcClient jdbcClient;
+
+    @AfterEach
+    void tearDown() {
+        jdbcClient.sql("DELETE FROM products WHERE handle = ?").param(HANDLE).update();
+    }
+
+    @Test
+    void addingAProductChangesTheHomePageEtag() throws Exception {
+        String etag = mockMvc.perform(get("/"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        mockMvc.perform(get("/").header(HttpHeaders.IF_NONE_MATCH, etag)).andExpect(status().isNotModified());
+
+        mockMvc.perform(post("/products")
+                        .param("title", "ETag Probe")
+                        .param("handle", HANDLE)
+                        .param("price", "199.00"))
+                .andExpect(status().isOk());
+
+        String refreshed = mockMvc.perform(get("/").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(etag, refreshed);
+    }
+}
@@ -0,0 +1,131 @@
+package com.respiroc.gregfullstack.controller;
+
+import com.respiroc.gregfullstack.model.Product;
+import com.respiroc.gregfullstack.model.ProductVariant;
+import com.respiroc.gregfullstack.repository.ProductRepository;
+import com.respiroc.gregfullstack.service.ProductCatalog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Renders {@code /products} from the database cursor and checks that the read transaction behind the
+ * stream ends with the request, whether the page was read fully, partly or failed while rendering.
+ * MockMvc runs the request on the test thread, so the thread-bound transaction is visible here.
+ */
+@SpringBootTest(properties = "catalog.stores.initial-delay=PT1H")
+@AutoConfigureMockMvc
+class ProductPageStreamingTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @MockitoSpyBean
+    private ProductCatalog productCatalog;
+
+    @Autowired
+    private JdbcClient jdbcClient;
+
+    private final List<Product> products = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 3; i++) {
+            products.add(productRepository.save(new Product(null, "Streaming Probe " + System.nanoTime(), "streaming-probe",
+                    19_900L, "Probe", List.of(new ProductVariant(null, "Default", 19_900L, "STREAM-" + i, true)))));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (Product product : products) {
+            jdbcClient.sql("DELETE FROM products WHERE id = ?").param(product.getId()).update();
+        }
+    }
+
+    @Test
+    void rendersThePageInListingOrder() throws Exception {
+        String html = mockMvc.perform(get("/products").param("page", "0").param("size", "50"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        int previous = -1;
+        for (Product product : productRepository.findPage(0, 50)) {
+            if (products.stream().noneMatch(probe -> probe.getId().equals(product.getId()))) {
+                continue;
+            }
+            int position = html.indexOf(product.getTitle());
+            assertTrue(position > previous, product.getTitle() + " is not rendered in listing order");
+            previous = position;
+        }
+        assertNoReadTransaction();
+    }
+
+    @Test
+    void pageRangeCountsTheRowsRendered() throws Exception {
+        // The page holds fewer rows than the count taken before it, as when products are deleted meanwhile
+        doAnswer(invocation -> {
+            @SuppressWarnings("unchecked")
+            Stream<Product> page = (Stream<Product>) invocation.callRealMethod();
+            return page.limit(1);
+        }).when(productCatalog).streamPage(anyInt(), anyInt());
+
+        String html = mockMvc.perform(get("/products").param("page", "0").param("size", "50"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertTrue(html.contains("Showing 1-1 of "), "range does not match the single rendered row");
+        assertNoReadTransaction();
+    }
+
+    @Test
+    void closingAPartlyReadStreamEndsTheReadTransaction() {
+        try (Stream<Product> page = productRepository.streamPage(0, 50)) {
+            assertTrue(page.findFirst().isPresent());
+            assertTrue(TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+        }
+        assertNoReadTransaction();
+    }
+
+    @Test
+    void failedRenderStillEndsTheReadTransaction() {
+        doAnswer(invocation -> {
+            @SuppressWarnings("unchecked")
+            Stream<Product> page = (Stream<Product>) invocation.callRealMethod();
+            return page.map(product -> {
+                throw new IllegalStateException("Rendering " + product.getId() + " failed");
+            });
+        }).when(productCatalog).streamPage(anyInt(), anyInt());
+
+        assertThrows(Exception.class, () -> mockMvc.perform(get("/products").param("page", "0").param("size", "50")));
+        assertNoReadTransaction();
+    }
+
+    private static void assertNoReadTransaction() {
+        assertFalse(TransactionSynchronizationManager.isActualTransactionActive());
+        assertEquals(0, TransactionSynchronizationManager.getResourceMap().size());
+    }
+}
@@ -0,0 +1,62 @@
+package com.respiroc.gregfullstack.diagnostics;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.stereotype.Repository;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RepositoryEventPostProcessorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void recordsOneEventPerRepositoryCallWithRowCounts() throws Exception {
+        SampleRepository repository = (SampleRepository) new RepositoryEventPostProcessor()
+                .postProcessAfterInitialization(new SampleRepository(), "sampleRepository");
+
+        Path file = tempDir.resolve("recording.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(RepositoryCallEvent.class);
+            recording.start();
+            repository.findAll();
+            repository.findById(7L);
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().equals("com.respiroc.gregfullstack.RepositoryCall"))
+                .toList();
+
+        assertEquals(2, events.size());
+        assertEquals("SampleRepository.findAll", events.get(0).getString("method"));
+        assertEquals(3, events.get(0).getLong("rows"));
+        assertEquals("SampleRepository.findById", events.get(1).getString("method"));
+        assertEquals(0, events.get(1).getLong("rows"));
+        assertFalse(events.get(1).getBoolean("failed"));
+        assertTrue(events.get(0).getDuration().toNanos() >= 0);
+    }
+
+    @Repository
+    static class SampleRepository {
+
+        public List<String> findAll() {
+            return List.of("a", "b", "c");
+        }
+
+        public Optional<String> findById(Long id) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.respiroc.gregfullstack.diagnostics;
+
+import com.respiroc.gregfullstack.model.Product;
+import com.respiroc.gregfullstack.model.ProductVariant;
+import com.respiroc.gregfullstack.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs the read pages against the database with {@code fail-on-budget-exceeded}, so a page whose
+ * query count grows past {@code http-query-budget} fails here instead of in production.
+ */
+@SpringBootTest(properties = {
+        "sql.diagnostics.fail-on-budget-exceeded=true",
+        "sql.diagnostics.http-query-budget=5",
+        "catalog.stores.initial-delay=PT1H"
+})
+@AutoConfigureMockMvc
+class SqlBudgetIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private SqlDiagnostics diagnostics;
+
+    @Autowired
+    private JdbcClient jdbcClient;
+
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        String title = "Budget Probe " + System.nanoTime();
+        product = productRepository.save(new Product(null, title, "budget-probe", 49_900L, "Probe",
+                List.of(new ProductVariant(null, "Default", 49_900L, "PROBE-1", true))));
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcClient.sql("DELETE FROM products WHERE id = ?").param(product.getId()).update();
+    }
+
+    @Test
+    void homePageStaysWithinBudget() throws Exception {
+        mockMvc.perform(get("/")).andExpect(status().isOk());
+    }
+
+    @Test
+    void productPageStaysWithinBudget() throws Exception {
+        mockMvc.perform(get("/products").param("page", "0").param("size", "50"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void productDetailStaysWithinBudget() throws Exception {
+        mockMvc.perform(get("/products/{id}", product.getId()))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString(product.getTitle())));
+    }
+
+    @Test
+    void searchResultsStayWithinBudget() throws Exception {
+        MvcResult debounced = mockMvc.perform(get("/search/results").param("q", product.getTitle()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(debounced))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString(product.getTitle())));
+    }
+
+    @Test
+    void nPlusOneLookupsFailTheRequest() {
+        try (SqlScope ignored = diagnostics.open("http", "GET /n-plus-one")) {
+            assertThrows(SqlBudgetExceededException.class, () -> {
+                for (int i = 0; i < 10; i++) {
+                    productRepository.findById(product.getId());
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.respiroc.gregfullstack.diagnostics;
+
+import com.respiroc.gregfullstack.config.SqlDiagnosticsProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SqlDiagnosticsTest {
+
+    @Mock
+    private DataSource target;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private PreparedStatement statement;
+
+    @Mock
+    private ResultSet resultSet;
+
+    private SqlDiagnostics diagnostics;
+    private DataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        diagnostics = new SqlDiagnostics(new SqlDiagnosticsProperties(true, Duration.ofSeconds(1), 3, 2, 0, true));
+        dataSource = new InstrumentedDataSource(target, () -> diagnostics);
+        lenient().when(target.getConnection()).thenReturn(connection);
+        lenient().when(connection.prepareStatement(anyString())).thenReturn(statement);
+    }
+
+    @Test
+    void countsQueriesAndRowsPerScope() throws SQLException {
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, true, false);
+        when(statement.executeUpdate()).thenReturn(4);
+
+        try (SqlScope scope = diagnostics.open("http", "GET /products")) {
+            query("SELECT id FROM products WHERE id = ?");
+            update("DELETE FROM products WHERE id < ?");
+
+            assertEquals(2, scope.queries());
+            assertEquals(6, scope.rows());
+        }
+
+        Map<String, Object> scopeStats = scopes().get("http GET /products");
+        assertEquals(1L, scopeStats.get("runs"));
+        assertEquals(2L, scopeStats.get("queries"));
+    }
+
+    @Test
+    void flagsRepeatedStatementsAsNPlusOne() throws SQLException {
+        when(statement.executeQuery()).thenReturn(resultSet);
+
+        try (SqlScope ignored = diagnostics.open("sync", "product-sync")) {
+            for (int i = 0; i < 4; i++) {
+                query("SELECT id FROM products WHERE shopify_product_id = " + i);
+            }
+        }
+
+        List<Map<String, Object>> statements = statements();
+        assertEquals(1, statements.size());
+        assertEquals("SELECT id FROM products WHERE shopify_product_id = ?", statements.getFirst().get("fingerprint"));
+        assertEquals(4L, statements.getFirst().get("executions"));
+        assertEquals(1L, statements.getFirst().get("nPlusOneDetections"));
+    }
+
+    @Test
+    void refusesStatementsBeyondTheQueryBudget() throws SQLException {
+        when(statement.executeQuery()).thenReturn(resultSet);
+
+        try (SqlScope scope = diagnostics.open("http", "GET /products")) {
+            query("SELECT COUNT(*) FROM products");
+            query("SELECT id FROM products LIMIT 10");
+
+            assertThrows(SqlBudgetExceededException.class, () -> query("SELECT id FROM products WHERE id = 1"));
+            assertEquals(2, scope.queries());
+        }
+
+        verify(statement, times(2)).executeQuery();
+        assertEquals(1L, scopes().get("http GET /products").get("budgetViolations"));
+    }
+
+    @Test
+    void onlyReportsBudgetViolationsWhenNotFailing() throws SQLException {
+        diagnostics = new SqlDiagnostics(new SqlDiagnosticsProperties(true, Duration.ofSeconds(1), 3, 2, 0, false));
+        when(statement.executeQuery()).thenReturn(resultSet);
+
+        try (SqlScope ignored = diagnostics.open("http", "GET /products")) {
+            for (int i = 0; i < 3; i++) {
+                query("SELECT id FROM products WHERE id = ?");
+            }
+        }
+
+        assertEquals(1L, scopes().get("http GET /products").get("budgetViolations"));
+    }
+
+    @Test
+    void nestedScopesAreBudgetedSeparately() throws SQLException {
+        when(statement.executeQuery()).thenReturn(resultSet);
+
+        try (SqlScope request = diagnostics.open("http", "POST /products/sync")) {
+            try (SqlScope ignored = diagnostics.open("sync", "product-sync")) {
+                for (int i = 0; i < 5; i++) {
+                    query("SELECT id FROM products WHERE shopify_product_id = ?");
+                }
+            }
+            query("SELECT COUNT(*) FROM products");
+            assertEquals(1, request.queries());
+        }
+    }
+
+    @Test
+    void workersAttachedToAScopeAreRecordedAsOneRun() throws Exception {
+        when(statement.executeQuery()).thenReturn(resultSet);
+        ExecutorService workers = Executors.newFixedThreadPool(2);
+
+        try (SqlScope run = diagnostics.open("sync", "product-sync/famme")) {
+            List<Future<?>> batches = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                batches.add(workers.submit(() -> {
+                    try (SqlScope.Attachment ignored = diagnostics.attach(run)) {
+                        query("SELECT id FROM products WHERE shopify_product_id = ?");
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> batch : batches) {
+                batch.get();
+            }
+            assertEquals(4, run.queries());
+        } finally {
+            workers.shutdown();
+        }
+
+        Map<String, Object> scopeStats = scopes().get("sync product-sync/famme");
+        assertEquals(1L, scopeStats.get("runs"));
+        assertEquals(4L, scopeStats.get("queries"));
+        assertEquals(1L, statements().getFirst().get("nPlusOneDetections"));
+    }
+
+    @Test
+    void fingerprintsStripLiteralsAndCollapseWhitespace() {
+        assertEquals("SELECT * FROM products WHERE title ILIKE ? AND id IN (?) LIMIT ?",
+                SqlDiagnostics.fingerprint("SELECT *\n  FROM products\n WHERE title ILIKE 'it''s%' AND id IN (1, 2, 3) LIMIT 10"));
+    }
+
+    private void query(String sql) throws SQLException {
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement ps = con.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                // drain
+            }
+        }
+    }
+
+    private void update(String sql) throws SQLException {
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.executeUpdate();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Map<String, Object>> scopes() {
+        return (Map<String, Map<String, Object>>) diagnostics.snapshot().get("scopes");
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Map<String, Object>> statements() {
+        return (List<Map<String, Object>>) diagnostics.snapshot().get("statements");
+    }
+}
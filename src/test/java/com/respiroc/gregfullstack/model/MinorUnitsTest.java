@@ -0,0 +1,55 @@
+package com.respiroc.gregfullstack.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MinorUnitsTest {
+
+    @Test
+    void parsesPlainDecimalsAtTheCurrencyScale() {
+        assertEquals(49_900L, MinorUnits.parse("499.00", 2));
+        assertEquals(49_950L, MinorUnits.parse("499.5", 2));
+        assertEquals(49_900L, MinorUnits.parse("499", 2));
+        assertEquals(49_900L, MinorUnits.parse("499.0000", 2));
+        assertEquals(-1_050L, MinorUnits.parse("-10.50", 2));
+        assertEquals(1_000L, MinorUnits.parse("1000.00", 0));
+
+        char[] token = "xx1299.00yy".toCharArray();
+        assertEquals(129_900L, MinorUnits.parse(token, 2, 7, 2));
+    }
+
+    @Test
+    void rejectsAnythingButPlainDecimals() {
+        assertThrows(NumberFormatException.class, () -> MinorUnits.parse("499.005", 2));
+        assertThrows(NumberFormatException.class, () -> MinorUnits.parse("4.99e2", 2));
+        assertThrows(NumberFormatException.class, () -> MinorUnits.parse("", 2));
+        assertThrows(NumberFormatException.class, () -> MinorUnits.parse(".", 2));
+        assertThrows(NumberFormatException.class, () -> MinorUnits.parse("1.2.3", 2));
+        assertThrows(NumberFormatException.class, () -> MinorUnits.parse("99999999999999999999", 2));
+    }
+
+    @Test
+    void writesWhatItParses() {
+        char[] buffer = new char[MinorUnits.MAX_CHARS];
+        for (String price : new String[]{"0.00", "0.05", "499.00", "-10.50", "92233720368547758.07"}) {
+            int length = MinorUnits.write(MinorUnits.parse(price, 2), 2, buffer);
+            assertEquals(price, new String(buffer, 0, length));
+        }
+        assertEquals("1000", new String(buffer, 0, MinorUnits.write(1_000L, 0, buffer)));
+    }
+
+    @Test
+    void convertsAtTheEdges() {
+        Currency nok = MinorUnits.DEFAULT_CURRENCY;
+        assertEquals(new BigDecimal("499.00"), MinorUnits.toDecimal(49_900L, nok));
+        assertEquals(49_901L, MinorUnits.fromDecimal(new BigDecimal("499.005"), nok));
+        assertEquals(49_900L, MinorUnits.rescale(4_990_000L, 4, 2));
+        assertThrows(ArithmeticException.class, () -> MinorUnits.rescale(4_990_050L, 4, 2));
+        assertEquals(nok, MinorUnits.ofNumericCode(nok.getNumericCode()));
+    }
+}
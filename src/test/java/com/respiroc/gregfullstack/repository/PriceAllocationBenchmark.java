@@ -0,0 +1,178 @@
+package com.respiroc.gregfullstack.repository;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.respiroc.gregfullstack.model.MinorUnits;
+import com.respiroc.gregfullstack.model.ProductVariant;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Compares allocation and time of the former {@code BigDecimal} price handling with minor units, over
+ * the products of {@code sample-products.json}. Covers the sync's price extraction, starting from the
+ * characters of each product as the fetch stage hands them over, and the decoding and encoding of the
+ * {@code variants} column. Run with {@code ./gradlew priceBenchmark}.
+ */
+public final class PriceAllocationBenchmark {
+
+    // Configured like Spring Boot's ObjectMapper, which ProductRepository used for the variants column
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private static final TypeReference<List<LegacyVariant>> LEGACY_VARIANT_LIST = new TypeReference<>() {};
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static long sink;
+
+    public static void main(String[] args) throws Exception {
+        Path sample = Path.of("sample-products.json");
+        int iterations = 2_000;
+        for (String arg : args) {
+            if (arg.startsWith("--sample=")) {
+                sample = Path.of(arg.substring("--sample=".length()));
+            } else if (arg.startsWith("--iterations=")) {
+                iterations = Integer.parseInt(arg.substring("--iterations=".length()));
+            }
+        }
+
+        List<JsonNode> products = new ArrayList<>();
+        MAPPER.readTree(Files.readString(sample)).get("products").forEach(products::add);
+        List<char[]> productTexts = new ArrayList<>();
+        for (JsonNode product : products) {
+            productTexts.add(MAPPER.writeValueAsString(product).toCharArray());
+        }
+        List<String> columns = new ArrayList<>();
+        int variantCount = 0;
+        for (JsonNode product : products) {
+            List<ProductVariant> variants = extractVariants(product.get("variants"));
+            columns.add(VariantCodec.write(variants));
+            variantCount += variants.size();
+        }
+        List<List<LegacyVariant>> legacyVariants = new ArrayList<>();
+        for (String column : columns) {
+            legacyVariants.add(MAPPER.readValue(column, LEGACY_VARIANT_LIST));
+        }
+        List<List<ProductVariant>> variants = new ArrayList<>();
+        for (String column : columns) {
+            variants.add(VariantCodec.read(column));
+        }
+
+        System.out.printf("%d products, %d variants, %d iterations%n%n", products.size(), variantCount, iterations);
+        System.out.printf("%-34s %14s %14s%n", "", "bytes/variant", "ns/variant");
+
+        int perIteration = variantCount;
+        run("sync: tree + BigDecimal", iterations, perIteration, () -> {
+            for (char[] product : productTexts) {
+                sink += legacyMinPrice(product).scale();
+            }
+        });
+        run("sync: streaming + minor units", iterations, perIteration, () -> {
+            for (char[] product : productTexts) {
+                sink += minPrice(product);
+            }
+        });
+        run("variants read: ObjectMapper", iterations, perIteration, () -> {
+            for (String column : columns) {
+                sink += MAPPER.readValue(column, LEGACY_VARIANT_LIST).size();
+            }
+        });
+        run("variants read: VariantCodec", iterations, perIteration, () -> {
+            for (String column : columns) {
+                sink += VariantCodec.read(column).size();
+            }
+        });
+        run("variants write: ObjectMapper", iterations, perIteration, () -> {
+            for (List<LegacyVariant> list : legacyVariants) {
+                sink += MAPPER.writeValueAsString(list).length();
+            }
+        });
+        run("variants write: VariantCodec", iterations, perIteration, () -> {
+            for (List<ProductVariant> list : variants) {
+                sink += VariantCodec.write(list).length();
+            }
+        });
+        System.out.println();
+        System.out.println("(checksum " + sink + ")");
+    }
+
+    private static void run(String name, int iterations, int operationsPerIteration, Work work) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < iterations; i++) {
+            work.run();
+        }
+
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long started = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            work.run();
+        }
+        long elapsed = System.nanoTime() - started;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+        double operations = (double) iterations * operationsPerIteration;
+        System.out.printf("%-34s %14.1f %14.1f%n", name, allocated / operations, elapsed / operations);
+    }
+
+    /** The price handling of ProductSyncService.parseProduct before prices were minor units. */
+    private static BigDecimal legacyMinPrice(char[] productText) throws IOException {
+        JsonNode product = MAPPER.readTree(MAPPER.createParser(productText));
+        List<BigDecimal> prices = new ArrayList<>();
+        for (JsonNode variant : product.get("variants")) {
+            prices.add(new BigDecimal(variant.get("price").asText()));
+        }
+        return prices.stream()
+                .filter(Objects::nonNull)
+                .min(BigDecimal::compareTo)
+                .orElse(BigDecimal.ZERO);
+    }
+
+    /** Prices read from the token characters, as ProductSyncService.parsePrice does. */
+    private static long minPrice(char[] productText) throws IOException {
+        long min = Long.MAX_VALUE;
+        try (JsonParser parser = JSON_FACTORY.createParser(productText)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token == JsonToken.VALUE_STRING && "price".equals(parser.currentName())) {
+                    min = Math.min(min, MinorUnits.parse(parser.getTextCharacters(), parser.getTextOffset(),
+                            parser.getTextLength(), 2));
+                }
+            }
+        }
+        return min;
+    }
+
+    private static List<ProductVariant> extractVariants(JsonNode variantsNode) {
+        List<ProductVariant> variants = new ArrayList<>();
+        for (JsonNode variant : variantsNode) {
+            variants.add(new ProductVariant(variant.get("id").asLong(), variant.get("title").asText(),
+                    MinorUnits.parse(variant.get("price").textValue(), 2), variant.get("sku").asText(null),
+                    variant.get("available").asBoolean()));
+        }
+        return variants;
+    }
+
+    @FunctionalInterface
+    private interface Work {
+        void run() throws Exception;
+    }
+
+    /** ProductVariant as it was mapped by Jackson before prices were minor units. */
+    public static class LegacyVariant {
+        public Long shopifyVariantId;
+        public String title;
+        public BigDecimal price;
+        public String sku;
+        public boolean available;
+    }
+}
@@ -0,0 +1,114 @@
+package com.respiroc.gregfullstack.repository;
+
+import com.respiroc.gregfullstack.model.Product;
+import com.respiroc.gregfullstack.model.ProductVariant;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.simple.JdbcClient;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Soft deletes hide a product from every read at once; purging removes the rows later, in chunks and
+ * only past the grace period, and remembers their Shopify ids so a sync does not bring them back.
+ */
+@SpringBootTest(properties = "catalog.stores.initial-delay=PT1H")
+class ProductTombstoneTest {
+
+    // Tombstones are aged to before this, so a purge up to it never touches rows of other tests
+    private static final LocalDateTime CUTOFF = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcClient jdbcClient;
+
+    private final String title = "Tombstone Probe " + System.nanoTime();
+    private final List<Product> products = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        long shopifyIdBase = -System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            products.add(productRepository.save(new Product(shopifyIdBase - i, title, "tombstone-probe", 19_900L, "Probe",
+                    List.of(new ProductVariant(null, "Default", 19_900L, "TOMBSTONE-" + i, true)))));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (Product product : products) {
+            jdbcClient.sql("DELETE FROM products WHERE id = ?").param(product.getId()).update();
+            jdbcClient.sql("DELETE FROM product_tombstones WHERE store_id = ? AND shopify_product_id = ?")
+                    .param(product.getStoreId())
+                    .param(product.getShopifyProductId())
+                    .update();
+        }
+    }
+
+    @Test
+    void readsSkipTombstonedProducts() {
+        Product deleted = products.getFirst();
+        long count = productRepository.count();
+
+        assertTrue(productRepository.softDeleteById(deleted.getId()));
+        assertFalse(productRepository.softDeleteById(deleted.getId()));
+
+        assertTrue(productRepository.findById(deleted.getId()).isEmpty());
+        assertEquals(count - 1, productRepository.count());
+        assertEquals(2, productRepository.searchByTitle(title).size());
+        assertTrue(productRepository.findByShopifyProductIds(deleted.getStoreId(), List.of(deleted.getShopifyProductId())).isEmpty());
+        assertTrue(productRepository.findPage(0, Math.toIntExact(count)).stream()
+                .noneMatch(product -> product.getId().equals(deleted.getId())));
+        assertEquals(Set.of(deleted.getShopifyProductId()), productRepository.findDeletedShopifyProductIds(
+                deleted.getStoreId(), products.stream().map(Product::getShopifyProductId).toList()));
+    }
+
+    @Test
+    void purgesInChunksOnlyPastTheGracePeriodAndRemembersShopifyIds() {
+        for (Product product : products) {
+            productRepository.softDeleteById(product.getId());
+        }
+        Product recent = products.getLast();
+        for (Product product : products.subList(0, 2)) {
+            jdbcClient.sql("UPDATE products SET deleted_at = ? WHERE id = ?")
+                    .param(Timestamp.valueOf(CUTOFF.minusDays(1)))
+                    .param(product.getId())
+                    .update();
+        }
+
+        assertEquals(1, productRepository.purgeDeletedBefore(CUTOFF, 1));
+        assertEquals(1, productRepository.purgeDeletedBefore(CUTOFF, 1));
+        assertEquals(0, productRepository.purgeDeletedBefore(CUTOFF, 1));
+
+        for (Product product : products) {
+            long rows = jdbcClient.sql("SELECT COUNT(*) FROM products WHERE id = ?").param(product.getId()).query(Long.class).single();
+            long tombstones = jdbcClient.sql("SELECT COUNT(*) FROM product_tombstones WHERE store_id = ? AND shopify_product_id = ?")
+                    .param(product.getStoreId())
+                    .param(product.getShopifyProductId())
+                    .query(Long.class)
+                    .single();
+            boolean withinGracePeriod = product == recent;
+            assertEquals(withinGracePeriod ? 1 : 0, rows, "row of " + product.getShopifyProductId());
+            assertEquals(withinGracePeriod ? 0 : 1, tombstones, "tombstone of " + product.getShopifyProductId());
+        }
+
+        // Purged and still-tombstoned products alike stay out of the sync
+        assertEquals(products.stream().map(Product::getShopifyProductId).collect(Collectors.toSet()),
+                productRepository.findDeletedShopifyProductIds(recent.getStoreId(),
+                        products.stream().map(Product::getShopifyProductId).toList()));
+    }
+}
@@ -0,0 +1,59 @@
+package com.respiroc.gregfullstack.repository;
+
+import com.respiroc.gregfullstack.model.ProductVariant;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Currency;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VariantCodecTest {
+
+    @Test
+    void readsDocumentsWrittenBeforePricesWereMinorUnits() throws IOException {
+        // Key order and spacing as returned by PostgreSQL for a jsonb column
+        String json = """
+            [{"sku": "SKU-1", "price": 499.00, "title": "Black / XS", "available": true, "shopifyVariantId": 49504614482268},
+             {"sku": null, "price": 549.5, "title": "Black / S", "available": false, "shopifyVariantId": null}]
+            """;
+
+        List<ProductVariant> variants = VariantCodec.read(json);
+
+        assertEquals(2, variants.size());
+        assertEquals(Long.valueOf(49504614482268L), variants.get(0).getShopifyVariantId());
+        assertEquals("Black / XS", variants.get(0).getTitle());
+        assertEquals(49_900L, variants.get(0).getPriceMinorUnits());
+        assertEquals("NOK", variants.get(0).getCurrency().getCurrencyCode());
+        assertTrue(variants.get(0).isAvailable());
+        assertEquals(54_950L, variants.get(1).getPriceMinorUnits());
+        assertNull(variants.get(1).getShopifyVariantId());
+        assertNull(variants.get(1).getSku());
+        assertFalse(variants.get(1).isAvailable());
+    }
+
+    @Test
+    void roundTripsPricesAndCurrencies() throws IOException {
+        List<ProductVariant> variants = List.of(
+                new ProductVariant(1L, "S", 29_900L, "SKU-S", true),
+                new ProductVariant(2L, "M", 1_000L, null, false).setCurrency(Currency.getInstance("JPY")));
+
+        String json = VariantCodec.write(variants);
+        List<ProductVariant> read = VariantCodec.read(json);
+
+        assertTrue(json.contains("\"price\":299.00"), json);
+        assertEquals(29_900L, read.get(0).getPriceMinorUnits());
+        assertEquals(1_000L, read.get(1).getPriceMinorUnits());
+        assertEquals("JPY", read.get(1).getCurrency().getCurrencyCode());
+    }
+
+    @Test
+    void rejectsMalformedPrices() {
+        assertThrows(IOException.class, () -> VariantCodec.read("[{\"price\": \"4,99\"}]"));
+    }
+}
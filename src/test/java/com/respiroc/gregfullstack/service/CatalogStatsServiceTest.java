@@ -0,0 +1,68 @@
+package com.respiroc.gregfullstack.service;
+
+import com.respiroc.gregfullstack.model.CatalogStats;
+import com.respiroc.gregfullstack.repository.CatalogStatsRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogStatsServiceTest {
+
+    @Mock
+    private CatalogStatsRepository catalogStatsRepository;
+
+    @Test
+    void loadsOnceAndServesFromMemoryUntilRefreshed() {
+        CatalogStatsService service = new CatalogStatsService(catalogStatsRepository);
+        when(catalogStatsRepository.find()).thenReturn(Optional.of(stats(3)), Optional.of(stats(5)));
+
+        assertEquals(3, service.current().orElseThrow().totalProducts());
+        assertEquals(3, service.current().orElseThrow().totalProducts());
+
+        service.refresh();
+
+        assertEquals(5, service.current().orElseThrow().totalProducts());
+        verify(catalogStatsRepository).refresh();
+        verify(catalogStatsRepository, times(2)).find();
+    }
+
+    @Test
+    void failuresKeepTheLastStatistics() {
+        CatalogStatsService service = new CatalogStatsService(catalogStatsRepository);
+        when(catalogStatsRepository.find()).thenReturn(Optional.of(stats(3)));
+        service.current();
+        doThrow(new DataAccessResourceFailureException("down")).when(catalogStatsRepository).refresh();
+
+        service.refresh();
+
+        assertEquals(3, service.current().orElseThrow().totalProducts());
+    }
+
+    @Test
+    void unavailableStatisticsAreEmpty() {
+        CatalogStatsService service = new CatalogStatsService(catalogStatsRepository);
+        when(catalogStatsRepository.find()).thenThrow(new DataAccessResourceFailureException("down"));
+
+        assertTrue(service.current().isEmpty());
+    }
+
+    private static CatalogStats stats(long totalProducts) {
+        return new CatalogStats(totalProducts, new BigDecimal("199.00"), new BigDecimal("349.50"),
+                new BigDecimal("499.00"), 4, 1, LocalDateTime.of(2025, 3, 1, 12, 0), List.of(), List.of());
+    }
+}
@@ -0,0 +1,103 @@
+package com.respiroc.gregfullstack.service;
+
+import com.respiroc.gregfullstack.config.PriceHistoryProperties;
+import com.respiroc.gregfullstack.model.MinorUnits;
+import com.respiroc.gregfullstack.model.PriceChange;
+import com.respiroc.gregfullstack.model.Product;
+import com.respiroc.gregfullstack.model.ProductVariant;
+import com.respiroc.gregfullstack.repository.PriceHistoryRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PriceHistoryServiceTest {
+
+    @Mock
+    private PriceHistoryRepository priceHistoryRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void recordsOnlyChangedVariants() {
+        PriceHistoryService service = service();
+        Product stored = product(1_001L, variant(11L, "499.00"), variant(12L, "549.00"));
+        Product incoming = product(1_001L, variant(11L, "499.0"), variant(12L, "449.00"), variant(13L, "599.00"));
+        when(priceHistoryRepository.insertAll(eq(3L), anyList())).thenReturn(1);
+
+        assertEquals(1, service.recordChanges(3L, incoming, stored));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<PriceChange>> captor = ArgumentCaptor.forClass(List.class);
+        verify(priceHistoryRepository).insertAll(eq(3L), captor.capture());
+        List<PriceChange> changes = captor.getValue();
+        assertEquals(1, changes.size());
+        assertEquals(Long.valueOf(12L), changes.getFirst().shopifyVariantId());
+        assertEquals(new BigDecimal("549.00"), changes.getFirst().oldPrice());
+        assertEquals(new BigDecimal("449.00"), changes.getFirst().newPrice());
+    }
+
+    @Test
+    void unchangedPricesWriteNothing() {
+        PriceHistoryService service = service();
+
+        assertEquals(0, service.recordChanges(3L, product(1_001L, variant(11L, "499.00")), product(1_001L, variant(11L, "499.00"))));
+
+        verifyNoInteractions(priceHistoryRepository);
+    }
+
+    @Test
+    void firstSeenProductsWriteNothing() {
+        PriceHistoryService service = service();
+
+        assertEquals(0, service.recordChanges(3L, product(1_001L, variant(11L, "499.00")), null));
+
+        verifyNoInteractions(priceHistoryRepository, transactionManager);
+    }
+
+    @Test
+    void insertFailuresAreRolledBackToTheSavepointAndDoNotPropagate() {
+        PriceHistoryService service = service();
+        when(priceHistoryRepository.insertAll(anyLong(), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("no partition"));
+
+        assertEquals(0, service.recordChanges(3L, product(1_001L, variant(11L, "449.00")), product(1_001L, variant(11L, "499.00"))));
+
+        verify(transactionManager).getTransaction(argThat(definition ->
+                definition.getPropagationBehavior() == TransactionDefinition.PROPAGATION_NESTED));
+        verify(transactionManager).rollback(any());
+    }
+
+    private PriceHistoryService service() {
+        return new PriceHistoryService(priceHistoryRepository,
+                new PriceHistoryProperties(true, 2, Duration.ofDays(365), Duration.ofDays(7), 100), transactionManager);
+    }
+
+    private static Product product(long shopifyProductId, ProductVariant... variants) {
+        return new Product(shopifyProductId, "Product", "product", variants[0].getPriceMinorUnits(), null, List.of(variants));
+    }
+
+    private static ProductVariant variant(long shopifyVariantId, String price) {
+        return new ProductVariant(shopifyVariantId, "Default", MinorUnits.parse(price, 2), null, true);
+    }
+}
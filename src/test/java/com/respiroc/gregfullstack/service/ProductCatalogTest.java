@@ -0,0 +1,116 @@
+package com.respiroc.gregfullstack.service;
+
+import com.respiroc.gregfullstack.config.CatalogSnapshotProperties;
+import com.respiroc.gregfullstack.repository.ProductRepository;
+import com.respiroc.gregfullstack.snapshot.CatalogSnapshot;
+import com.respiroc.gregfullstack.snapshot.CatalogSnapshotService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ProductCatalogTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private CatalogSnapshotService snapshotService;
+
+    @Mock
+    private CatalogSnapshot snapshot;
+
+    private ProductCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        catalog = new ProductCatalog(productRepository, snapshotService,
+                new CatalogSnapshotProperties(true, Path.of("catalog.snapshot"), Duration.ofSeconds(5), Duration.ofMillis(50)));
+        lenient().when(snapshotService.current()).thenReturn(Optional.of(snapshot));
+    }
+
+    @AfterEach
+    void tearDown() {
+        catalog.shutdown();
+    }
+
+    @Test
+    void servesSnapshotUntilTheFirstProbeAnswers() {
+        when(snapshot.count()).thenReturn(3L);
+        when(productRepository.count()).thenReturn(4L);
+
+        assertEquals(3L, catalog.count());
+        assertTrue(catalog.isServingSnapshot());
+
+        catalog.probe();
+
+        assertEquals(4L, catalog.count());
+        assertFalse(catalog.isServingSnapshot());
+    }
+
+    @Test
+    void unansweredProbeRoutesReadsToSnapshotWithoutTouchingThePool() throws Exception {
+        CountDownLatch released = new CountDownLatch(1);
+        catalog.probe();
+        doAnswer(invocation -> {
+            released.await();
+            return null;
+        }).when(productRepository).ping();
+        when(snapshot.count()).thenReturn(3L);
+
+        catalog.probe();
+
+        assertEquals(3L, catalog.count());
+        verify(productRepository, never()).count();
+
+        released.countDown();
+        catalog.probe();
+        assertFalse(catalog.isServingSnapshot());
+    }
+
+    @Test
+    void failedReadServesSnapshotUntilAProbeSucceeds() {
+        catalog.probe();
+        when(productRepository.count())
+                .thenThrow(new DataAccessResourceFailureException("connection refused"))
+                .thenReturn(4L);
+        when(snapshot.count()).thenReturn(3L);
+        doThrow(new DataAccessResourceFailureException("connection refused")).when(productRepository).ping();
+
+        assertEquals(3L, catalog.count());
+        catalog.probe();
+        assertEquals(3L, catalog.count());
+        verify(productRepository).count();
+
+        doNothing().when(productRepository).ping();
+        catalog.probe();
+        assertEquals(4L, catalog.count());
+    }
+
+    @Test
+    void adminWriteInvalidatesTheSnapshot() {
+        catalog.catalogChanged();
+
+        verify(snapshotService).invalidate();
+    }
+}
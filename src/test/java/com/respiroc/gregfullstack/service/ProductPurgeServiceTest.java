@@ -0,0 +1,65 @@
+package com.respiroc.gregfullstack.service;
+
+import com.respiroc.gregfullstack.config.PurgeProperties;
+import com.respiroc.gregfullstack.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ProductPurgeServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Test
+    void purgesInBatchesUntilAShortOne() {
+        ProductPurgeService service = new ProductPurgeService(productRepository,
+                new PurgeProperties(true, Duration.ofMinutes(10), 100));
+        when(productRepository.purgeDeletedBefore(any(), eq(100))).thenReturn(100, 100, 7);
+
+        service.purgeTombstones();
+
+        verify(productRepository, times(3)).purgeDeletedBefore(any(), eq(100));
+    }
+
+    @Test
+    void keepsTombstonesWithinTheGracePeriod() {
+        ProductPurgeService service = new ProductPurgeService(productRepository,
+                new PurgeProperties(true, Duration.ofMinutes(10), 100));
+        when(productRepository.purgeDeletedBefore(any(), anyInt())).thenReturn(0);
+
+        LocalDateTime before = LocalDateTime.now().minusMinutes(10);
+        service.purgeTombstones();
+        LocalDateTime after = LocalDateTime.now().minusMinutes(10);
+
+        ArgumentCaptor<LocalDateTime> cutoff = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(productRepository).purgeDeletedBefore(cutoff.capture(), eq(100));
+        assertFalse(cutoff.getValue().isBefore(before));
+        assertFalse(cutoff.getValue().isAfter(after));
+    }
+
+    @Test
+    void disabledPurgeLeavesTombstones() {
+        ProductPurgeService service = new ProductPurgeService(productRepository,
+                new PurgeProperties(false, Duration.ofMinutes(10), 100));
+
+        service.purgeTombstones();
+
+        verify(productRepository, never()).purgeDeletedBefore(any(), anyInt());
+    }
+}
@@ -0,0 +1,83 @@
+package com.respiroc.gregfullstack.service;
+
+import com.respiroc.gregfullstack.config.RetentionProperties;
+import com.respiroc.gregfullstack.repository.ProductRepository;
+import com.respiroc.gregfullstack.repository.SyncRunRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ProductRetentionServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private SyncRunRepository syncRunRepository;
+
+    @Test
+    void maxCountPolicyDeletesInBatchesOncePerGeneration() {
+        ProductRetentionService service = serviceWith(RetentionProperties.Policy.MAX_COUNT);
+        when(syncRunRepository.findLatestCompletedGenerations()).thenReturn(Map.of("famme", 4L));
+        when(productRepository.deleteBeyondNewest("famme", 50, 100)).thenReturn(100, 100, 12);
+
+        service.applyRetention();
+        service.applyRetention();
+
+        verify(productRepository, times(3)).deleteBeyondNewest("famme", 50, 100);
+    }
+
+    @Test
+    void appliesPolicyPerStore() {
+        ProductRetentionService service = serviceWith(RetentionProperties.Policy.MAX_COUNT);
+        when(syncRunRepository.findLatestCompletedGenerations()).thenReturn(Map.of("famme", 4L, "outlet", 5L));
+        when(productRepository.deleteBeyondNewest(anyString(), anyInt(), anyInt())).thenReturn(0);
+
+        service.applyRetention();
+
+        verify(productRepository).deleteBeyondNewest("famme", 50, 100);
+        verify(productRepository).deleteBeyondNewest("outlet", 50, 100);
+    }
+
+    @Test
+    void unseenPolicyKeepsProductsSeenInRecentGenerations() {
+        ProductRetentionService service = serviceWith(RetentionProperties.Policy.UNSEEN_SYNCS);
+        when(syncRunRepository.findLatestCompletedGenerations()).thenReturn(Map.of("famme", 10L));
+        when(syncRunRepository.findCompletedGeneration("famme", 3)).thenReturn(Optional.of(7L));
+        when(productRepository.deleteLastSeenBefore("famme", 7L, 100)).thenReturn(0);
+
+        service.applyRetention();
+
+        verify(productRepository).deleteLastSeenBefore("famme", 7L, 100);
+    }
+
+    @Test
+    void skipsUntilFirstSyncCompletes() {
+        ProductRetentionService service = serviceWith(RetentionProperties.Policy.UNSEEN_SYNCS);
+        when(syncRunRepository.findLatestCompletedGenerations()).thenReturn(Map.of());
+
+        service.applyRetention();
+
+        verify(productRepository, never()).deleteLastSeenBefore(anyString(), anyLong(), anyInt());
+    }
+
+    private ProductRetentionService serviceWith(RetentionProperties.Policy policy) {
+        RetentionProperties properties = new RetentionProperties(
+                true, policy, 50, Duration.ofDays(30), 3, 100, Duration.ZERO);
+        return new ProductRetentionService(productRepository, syncRunRepository, properties);
+    }
+}
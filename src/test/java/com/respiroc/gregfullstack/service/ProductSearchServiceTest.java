@@ -0,0 +1,161 @@
+package com.respiroc.gregfullstack.service;
+
+import com.respiroc.gregfullstack.config.SearchProperties;
+import com.respiroc.gregfullstack.diagnostics.SqlDiagnostics;
+import com.respiroc.gregfullstack.model.Product;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ProductSearchServiceTest {
+
+    @Mock
+    private ProductCatalog productCatalog;
+
+    @Mock
+    private SqlDiagnostics sqlDiagnostics;
+
+    private ProductSearchService searchService;
+
+    private final List<Product> leggings = List.of(new Product(1L, "Seamless Leggings", "seamless-leggings", 1_000L, null));
+
+    @BeforeEach
+    void setUp() {
+        searchService = searchService(Duration.ofMillis(200), 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        searchService.shutdown();
+    }
+
+    @Test
+    void concurrentIdenticalSearchesShareOneQuery() throws Exception {
+        CountDownLatch queryStarted = new CountDownLatch(1);
+        CountDownLatch releaseQuery = new CountDownLatch(1);
+        when(productCatalog.searchByTitle("leg")).thenAnswer(invocation -> {
+            queryStarted.countDown();
+            releaseQuery.await(5, TimeUnit.SECONDS);
+            return leggings;
+        });
+
+        CompletableFuture<List<Product>> first = CompletableFuture.supplyAsync(() -> searchService.search("leg"));
+        assertTrue(queryStarted.await(5, TimeUnit.SECONDS));
+        CompletableFuture<List<Product>> second = CompletableFuture.supplyAsync(() -> searchService.search(" LEG "));
+        Thread.sleep(50);
+        releaseQuery.countDown();
+
+        assertEquals(leggings, first.get(5, TimeUnit.SECONDS));
+        assertEquals(leggings, second.get(5, TimeUnit.SECONDS));
+        assertEquals(leggings, searchService.search("Leg"));
+        verify(productCatalog, times(1)).searchByTitle("leg");
+    }
+
+    @Test
+    void rapidKeystrokesRunOneQuery() throws Exception {
+        when(productCatalog.searchByTitle("legging")).thenReturn(leggings);
+
+        List<CompletableFuture<Optional<List<Product>>>> keystrokes = new ArrayList<>();
+        for (int length = 3; length <= "legging".length(); length++) {
+            keystrokes.add(searchService.search("tab-1", (long) length, "legging".substring(0, length)));
+        }
+        CompletableFuture<Optional<List<Product>>> last = keystrokes.removeLast();
+
+        // Replaced keystrokes are answered at once, without waiting for the debounce delay
+        for (CompletableFuture<Optional<List<Product>>> superseded : keystrokes) {
+            assertTrue(superseded.isDone());
+            assertTrue(superseded.join().isEmpty());
+        }
+        assertFalse(last.isDone());
+        assertEquals(Optional.of(leggings), last.get(5, TimeUnit.SECONDS));
+        assertTrue(searchService.search("tab-1", 4L, "legg").join().isEmpty(), "late keystrokes are dropped");
+        verify(productCatalog).searchByTitle("legging");
+        verifyNoMoreInteractions(productCatalog);
+    }
+
+    @Test
+    void keystrokeArrivingWhileTheQueryRunsSupersedesItsResult() throws Exception {
+        searchService.shutdown();
+        searchService = searchService(Duration.ZERO, 100);
+        CountDownLatch queryStarted = new CountDownLatch(1);
+        CountDownLatch releaseQuery = new CountDownLatch(1);
+        when(productCatalog.searchByTitle("leg")).thenAnswer(invocation -> {
+            queryStarted.countDown();
+            releaseQuery.await(5, TimeUnit.SECONDS);
+            return leggings;
+        });
+        when(productCatalog.searchByTitle("legg")).thenReturn(leggings);
+
+        CompletableFuture<Optional<List<Product>>> stale = searchService.search("tab-1", 1L, "leg");
+        assertTrue(queryStarted.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Optional<List<Product>>> latest = searchService.search("tab-1", 2L, "legg");
+        assertTrue(stale.get(5, TimeUnit.SECONDS).isEmpty());
+        releaseQuery.countDown();
+
+        assertEquals(Optional.of(leggings), latest.get(5, TimeUnit.SECONDS));
+        verify(productCatalog).searchByTitle("leg");
+        verify(productCatalog).searchByTitle("legg");
+    }
+
+    @Test
+    void resultsOfQueriesRunningDuringInvalidateAreNotReused() throws Exception {
+        CountDownLatch queryStarted = new CountDownLatch(1);
+        CountDownLatch releaseQuery = new CountDownLatch(1);
+        when(productCatalog.searchByTitle("leg")).thenAnswer(invocation -> {
+            if (queryStarted.getCount() > 0) {
+                queryStarted.countDown();
+                releaseQuery.await(5, TimeUnit.SECONDS);
+            }
+            return leggings;
+        });
+
+        CompletableFuture<List<Product>> before = CompletableFuture.supplyAsync(() -> searchService.search("leg"));
+        assertTrue(queryStarted.await(5, TimeUnit.SECONDS));
+        searchService.invalidate();
+        assertEquals(leggings, searchService.search("leg"));
+        releaseQuery.countDown();
+        assertEquals(leggings, before.get(5, TimeUnit.SECONDS));
+
+        assertEquals(leggings, searchService.search("leg"));
+        verify(productCatalog, times(2)).searchByTitle("leg");
+    }
+
+    @Test
+    void forgetsLeastRecentlySeenClientsBeyondTheLimit() throws Exception {
+        searchService.shutdown();
+        searchService = searchService(Duration.ZERO, 2);
+        when(productCatalog.searchByTitle("leg")).thenReturn(leggings);
+
+        searchService.search("tab-1", 5L, "leg").get(5, TimeUnit.SECONDS);
+        searchService.search("tab-2", 1L, "leg").get(5, TimeUnit.SECONDS);
+        searchService.search("tab-3", 1L, "leg").get(5, TimeUnit.SECONDS);
+
+        assertTrue(searchService.search("tab-3", 0L, "leg").get(5, TimeUnit.SECONDS).isEmpty());
+        assertEquals(Optional.of(leggings), searchService.search("tab-1", 1L, "leg").get(5, TimeUnit.SECONDS));
+    }
+
+    private ProductSearchService searchService(Duration debounce, int maxTrackedClients) {
+        return new ProductSearchService(productCatalog,
+                new SearchProperties(Duration.ofMinutes(1), 100, debounce, maxTrackedClients), sqlDiagnostics);
+    }
+}
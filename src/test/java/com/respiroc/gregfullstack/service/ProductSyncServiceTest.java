@@ -3,27 +3,43 @@ package com.respiroc.gregfullstack.service;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.respiroc.gregfullstack.client.ProductFeedClient;
+import com.respiroc.gregfullstack.config.StoreSyncProperties;
+import com.respiroc.gregfullstack.config.SyncPipelineProperties;
+import com.respiroc.gregfullstack.diagnostics.SqlDiagnostics;
 import com.respiroc.gregfullstack.model.Product;
+import com.respiroc.gregfullstack.model.ProductVariant;
 import com.respiroc.gregfullstack.repository.ProductRepository;
+import com.respiroc.gregfullstack.repository.SyncRunRepository;
+import com.respiroc.gregfullstack.snapshot.CatalogSnapshotService;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.net.URI;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -33,22 +49,47 @@ class ProductSyncServiceTest {
     private ProductRepository productRepository;
 
     @Mock
-    private RestTemplate restTemplate;
+    private SyncRunRepository syncRunRepository;
+
+    @Mock
+    private ProductFeedClient feedClient;
+
+    @Mock
+    private SqlDiagnostics sqlDiagnostics;
+
+    @Mock
+    private CatalogSnapshotService catalogSnapshotService;
+
+    @Mock
+    private PriceHistoryService priceHistoryService;
+
+    @Mock
+    private CatalogStatsService catalogStatsService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
 
-    @InjectMocks
     private ProductSyncService productSyncService;
 
+    private static final StoreSyncProperties.Store STORE =
+            new StoreSyncProperties.Store("outlet", URI.create("https://outlet.example.com/products.json"));
+
     private final ObjectMapper mapper = new ObjectMapper();
 
+    @BeforeEach
+    void setUp() {
+        productSyncService = new ProductSyncService(productRepository, syncRunRepository, feedClient, sqlDiagnostics,
+                new SyncPipelineProperties(2, 1, 4, 4, 10), catalogSnapshotService, priceHistoryService,
+                catalogStatsService, transactionManager);
+    }
+
     @Test
     void syncProductsLimitsToFiftySavedRecords() throws Exception {
-        when(restTemplate.getForObject(anyString(), eq(String.class)))
-                .thenReturn(buildProductsJson(55));
-        when(productRepository.count()).thenReturn(0L, 50L);
-        when(productRepository.findByShopifyProductId(anyLong())).thenReturn(Optional.empty());
-        when(productRepository.pruneExcess(anyInt())).thenReturn(0);
+        when(feedClient.fetchProducts(STORE.url(), true)).thenReturn(Optional.of(buildProductsJson(55)));
+        when(productRepository.count("outlet")).thenReturn(0L, 50L);
+        when(syncRunRepository.start("outlet")).thenReturn(7L);
 
-        productSyncService.syncProducts();
+        productSyncService.syncStore(STORE, true);
 
         ArgumentCaptor<Product> productCaptor = ArgumentCaptor.forClass(Product.class);
         verify(productRepository, times(50)).save(productCaptor.capture());
@@ -56,8 +97,90 @@ class ProductSyncServiceTest {
         List<Product> savedProducts = productCaptor.getAllValues();
         assertEquals(50, savedProducts.size());
         savedProducts.forEach(product -> assertFalse(product.getVariants().isEmpty(), "variants should be captured"));
+        savedProducts.forEach(product -> assertEquals(Long.valueOf(7L), product.getLastSeenGeneration()));
+        savedProducts.forEach(product -> assertEquals("outlet", product.getStoreId()));
+
+        verify(syncRunRepository).complete(7L);
+        verify(catalogSnapshotService).refresh(7L);
+        verify(catalogStatsService).refresh();
+        assertEquals("COMPLETED", productSyncService.storeSyncStats().get("outlet").get("lastOutcome").toString());
+        verify(productRepository, never()).deleteBeyondNewest(anyString(), anyInt(), anyInt());
+    }
+
+    @Test
+    void syncProductsDoesNotResurrectDeletedProducts() throws Exception {
+        when(feedClient.fetchProducts(STORE.url(), true)).thenReturn(Optional.of(buildProductsJson(3)));
+        when(syncRunRepository.start("outlet")).thenReturn(1L);
+        when(productRepository.findDeletedShopifyProductIds(eq("outlet"), anyCollection())).thenReturn(Set.of(1_001L));
+
+        productSyncService.syncStore(STORE, true);
+
+        ArgumentCaptor<Product> productCaptor = ArgumentCaptor.forClass(Product.class);
+        verify(productRepository, times(2)).save(productCaptor.capture());
+        assertEquals(Set.of(1_000L, 1_002L), productCaptor.getAllValues().stream()
+                .map(Product::getShopifyProductId)
+                .collect(Collectors.toSet()));
+    }
+
+    @Test
+    void syncProductsUpdatesExistingProductsWithOneLookupPerBatch() throws Exception {
+        Product existing = new Product(1_001L, "Old title", "old", 100L, null, List.of()).setId(42L);
+        when(feedClient.fetchProducts(STORE.url(), true)).thenReturn(Optional.of(buildProductsJson(3)));
+        when(syncRunRepository.start("outlet")).thenReturn(2L);
+        when(productRepository.count("outlet")).thenReturn(50L);
+        when(productRepository.findByShopifyProductIds(eq("outlet"), anyCollection())).thenReturn(List.of(existing));
+
+        productSyncService.syncStore(STORE, true);
+
+        ArgumentCaptor<Product> productCaptor = ArgumentCaptor.forClass(Product.class);
+        verify(productRepository).save(productCaptor.capture());
+        assertEquals(Long.valueOf(42L), productCaptor.getValue().getId());
+        assertEquals("Product 1", productCaptor.getValue().getTitle());
+        assertEquals(30_000L, productCaptor.getValue().getPriceMinorUnits());
+        verify(priceHistoryService).recordChanges(2L, productCaptor.getValue(), existing);
+        verify(transactionManager).commit(any());
+        verify(productRepository).findByShopifyProductIds(eq("outlet"), anyCollection());
+        verify(productRepository, never()).findByShopifyProductId(anyString(), anyLong());
+    }
+
+    @Test
+    void syncProductsReadsStringAndNumericPrices() throws Exception {
+        String feed = """
+                {"products": [
+                  {"id": 1, "title": "Strings", "handle": "strings", "variants": [{"id": 11, "price": "404.10"}, {"id": 12, "price": "99"}]},
+                  {"id": 2, "title": "Numbers", "handle": "numbers", "variants": [{"id": 21, "price": 129.5}, {"id": 22, "price": 4.99E2}]},
+                  {"id": 3, "title": "Invalid", "handle": "invalid", "variants": [{"id": 31, "price": "4,99"}, {"id": 32, "price": "1e3"}]},
+                  "not a product",
+                  {"id": 4, "handle": "untitled", "variants": [{"id": 41, "price": "10.00"}]}
+                ]}
+                """;
+        when(feedClient.fetchProducts(STORE.url(), true)).thenReturn(Optional.of(feed));
+        when(syncRunRepository.start("outlet")).thenReturn(3L);
+
+        productSyncService.syncStore(STORE, true);
+
+        ArgumentCaptor<Product> productCaptor = ArgumentCaptor.forClass(Product.class);
+        verify(productRepository, times(3)).save(productCaptor.capture());
+        Map<Long, Product> saved = productCaptor.getAllValues().stream()
+                .collect(Collectors.toMap(Product::getShopifyProductId, Function.identity()));
+        assertEquals(List.of(40_410L, 9_900L), prices(saved.get(1L)));
+        assertEquals(9_900L, saved.get(1L).getPriceMinorUnits());
+        assertEquals(List.of(12_950L, 49_900L), prices(saved.get(2L)));
+        assertEquals(12_950L, saved.get(2L).getPriceMinorUnits());
+        assertEquals(List.of(0L, 0L), prices(saved.get(3L)));
+    }
+
+    @Test
+    void syncProductsSkipsWorkWhenFeedIsNotModified() {
+        when(feedClient.fetchProducts(STORE.url(), true)).thenReturn(Optional.empty());
+
+        productSyncService.syncStore(STORE, true);
+
+        verifyNoInteractions(productRepository, syncRunRepository, catalogSnapshotService, catalogStatsService);
+    }
 
-        verify(productRepository).pruneExcess(50);
+    private static List<Long> prices(Product product) {
+        return product.getVariants().stream().map(ProductVariant::getPriceMinorUnits).toList();
     }
 
     private String buildProductsJson(int totalProducts) throws Exception {
@@ -0,0 +1,123 @@
+package com.respiroc.gregfullstack.service;
+
+import com.respiroc.gregfullstack.config.FeedClientProperties;
+import com.respiroc.gregfullstack.config.StoreSyncProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class StoreSyncSchedulerTest {
+
+    private static final StoreSyncProperties.Store FAMME = store("famme");
+    private static final StoreSyncProperties.Store OUTLET = store("outlet");
+    private static final StoreSyncProperties.Store KIDS = store("kids");
+
+    @Mock
+    private ProductSyncService productSyncService;
+
+    private StoreSyncScheduler scheduler;
+
+    @AfterEach
+    void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    void spreadsFirstRunsAcrossTheInterval() {
+        scheduler = scheduler(List.of(FAMME, OUTLET, KIDS), 2);
+
+        assertEquals(Duration.ofSeconds(30), scheduler.startDelay(0));
+        assertEquals(Duration.ofMinutes(20).plusSeconds(30), scheduler.startDelay(1));
+        assertEquals(Duration.ofMinutes(40).plusSeconds(30), scheduler.startDelay(2));
+    }
+
+    @Test
+    void slowStoreDoesNotHoldBackTheOthers() {
+        scheduler = scheduler(List.of(FAMME, OUTLET), 2);
+        CountDownLatch outletDone = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            // Only finishes once the other store has completed, which needs a second worker
+            assertTrue(outletDone.await(5, TimeUnit.SECONDS));
+            return null;
+        }).when(productSyncService).syncStore(eq(FAMME), eq(false));
+        doAnswer(invocation -> {
+            outletDone.countDown();
+            return null;
+        }).when(productSyncService).syncStore(eq(OUTLET), eq(false));
+
+        scheduler.syncAllNow();
+
+        verify(productSyncService, timeout(5_000)).syncStore(FAMME, false);
+        verify(productSyncService, timeout(5_000)).syncStore(OUTLET, false);
+    }
+
+    @Test
+    void manualSyncReturnsAtOnceAndJoinsARunningSync() throws Exception {
+        scheduler = scheduler(List.of(FAMME), 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        doAnswer(invocation -> {
+            runs.incrementAndGet();
+            started.countDown();
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+            return null;
+        }).when(productSyncService).syncStore(eq(FAMME), eq(false));
+
+        Map<String, String> first = scheduler.syncAllNow();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Map<String, String> second = scheduler.syncAllNow();
+        release.countDown();
+
+        assertEquals(Set.of("famme"), first.keySet());
+        assertEquals(first, second);
+        verify(productSyncService, timeout(5_000)).syncStore(FAMME, false);
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void fallsBackToTheFeedUrlWhenNoStoreIsConfigured() {
+        scheduler = scheduler(List.of(), 1);
+
+        assertEquals(List.of(new StoreSyncProperties.Store("famme", URI.create("https://famme.no/products.json"))),
+                scheduler.stores());
+    }
+
+    @Test
+    void rejectsDuplicateStoreIds() {
+        assertThrows(IllegalStateException.class, () -> scheduler(List.of(FAMME, FAMME), 1));
+    }
+
+    private StoreSyncScheduler scheduler(List<StoreSyncProperties.Store> stores, int parallelism) {
+        StoreSyncProperties properties = new StoreSyncProperties(stores, Duration.ofHours(1), Duration.ofSeconds(30), parallelism);
+        FeedClientProperties feedProperties = new FeedClientProperties(URI.create("https://famme.no/products.json"),
+                Duration.ofSeconds(5), Duration.ofSeconds(30), 4, Duration.ofMillis(500), Duration.ofSeconds(10), 5, Duration.ofMinutes(5));
+        return new StoreSyncScheduler(productSyncService, properties, feedProperties);
+    }
+
+    private static StoreSyncProperties.Store store(String id) {
+        return new StoreSyncProperties.Store(id, URI.create("https://" + id + ".example.com/products.json"));
+    }
+}
@@ -0,0 +1,93 @@
+package com.respiroc.gregfullstack.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SyncPipelineTest {
+
+    @Test
+    void deliversEveryItemThroughAllStagesAndReportsStats() throws Exception {
+        Set<Integer> written = ConcurrentHashMap.newKeySet();
+        AtomicInteger maxBatch = new AtomicInteger();
+
+        try (SyncPipeline pipeline = new SyncPipeline("test")) {
+            SyncPipeline.Stage<Integer> sink = pipeline.stage("sink", 3, 2, 4, null, batch -> {
+                maxBatch.accumulateAndGet(batch.size(), Math::max);
+                written.addAll(batch);
+            });
+            SyncPipeline.Stage<Integer> source = pipeline.stage("source", 2, 2, 1, sink, batch -> {
+                for (Integer item : batch) {
+                    sink.emit(item * 2);
+                }
+            });
+
+            pipeline.start();
+            for (int i = 0; i < 100; i++) {
+                source.emit(i);
+            }
+            source.complete();
+            pipeline.await();
+
+            assertEquals(100, written.size());
+            assertTrue(written.contains(198));
+            assertTrue(maxBatch.get() <= 4);
+
+            List<SyncPipeline.StageStats> stats = pipeline.stats();
+            assertEquals(List.of("source", "sink"), stats.stream().map(SyncPipeline.StageStats::stage).toList());
+            assertEquals(100, stats.get(0).items());
+            assertEquals(100, stats.get(1).items());
+            assertTrue(stats.get(0).maxQueueDepth() <= 2);
+        }
+    }
+
+    @Test
+    void failureInAStagePropagatesToAwait() {
+        try (SyncPipeline pipeline = new SyncPipeline("test")) {
+            SyncPipeline.Stage<Integer> sink = pipeline.stage("sink", 1, 1, 1, null, batch -> {
+                throw new IllegalStateException("boom");
+            });
+
+            pipeline.start();
+            ExecutionException error = assertThrows(ExecutionException.class, () -> {
+                sink.emit(1);
+                sink.complete();
+                pipeline.await();
+            });
+            assertInstanceOf(IllegalStateException.class, error.getCause());
+        }
+    }
+
+    @Test
+    void cancelUnblocksProducersAndWorkers() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+
+        try (SyncPipeline pipeline = new SyncPipeline("test")) {
+            SyncPipeline.Stage<Integer> sink = pipeline.stage("sink", 1, 1, 1, null, batch -> {
+                blocked.countDown();
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            });
+
+            pipeline.start();
+            sink.emit(1);
+            assertTrue(blocked.await(5, TimeUnit.SECONDS));
+            sink.emit(2);
+
+            pipeline.cancel();
+            assertThrows(CancellationException.class, () -> sink.emit(3));
+            assertThrows(CancellationException.class, pipeline::await);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.respiroc.gregfullstack.snapshot;
+
+import com.respiroc.gregfullstack.config.CatalogSnapshotProperties;
+import com.respiroc.gregfullstack.model.Product;
+import com.respiroc.gregfullstack.model.ProductVariant;
+import com.respiroc.gregfullstack.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class CatalogSnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void roundTripsProductsAndServesIndexedLookups() throws Exception {
+        Path file = tempDir.resolve("catalog.snapshot");
+        writeSnapshot(file, 12L);
+
+        CatalogSnapshot snapshot = CatalogSnapshot.open(file);
+
+        assertEquals(12L, snapshot.generation());
+        assertEquals(4, snapshot.count());
+        assertEquals(List.of(30L, 10L, 20L, 40L), snapshot.findPage(0, 10).stream().map(Product::getId).toList());
+        assertEquals(List.of(10L), snapshot.findPage(1, 1).stream().map(Product::getId).toList());
+
+        Product product = snapshot.findById(10L).orElseThrow();
+        assertEquals("Seamless Leggings", product.getTitle());
+        assertEquals(49_900L, product.getPriceMinorUnits());
+        assertEquals(new BigDecimal("499.00"), product.getPrice());
+        assertEquals(LocalDateTime.of(2025, 3, 1, 12, 30, 15, 123_456_000), product.getCreatedAt());
+        assertNull(product.getProductType());
+        assertEquals("outlet", product.getStoreId());
+        assertEquals(2, product.getVariants().size());
+        assertEquals("M", product.getVariants().get(1).getTitle());
+        assertEquals(54_900L, product.getVariants().get(1).getPriceMinorUnits());
+        assertEquals("NOK", product.getVariants().get(1).getCurrency().getCurrencyCode());
+
+        assertEquals(20L, snapshot.findByShopifyProductId("famme", 2_002L).orElseThrow().getId());
+        assertEquals(40L, snapshot.findByShopifyProductId("outlet", 2_002L).orElseThrow().getId());
+        assertTrue(snapshot.findByShopifyProductId("outlet", 3_003L).isEmpty());
+        assertTrue(snapshot.findByShopifyProductId("unknown", 2_002L).isEmpty());
+        assertTrue(snapshot.findById(11L).isEmpty());
+        assertEquals(List.of(30L, 20L), snapshot.searchByTitle("BRA").stream().map(Product::getId).toList());
+    }
+
+    @Test
+    void indexesProductsAppendedInAnyKeyOrder() throws Exception {
+        Path file = tempDir.resolve("catalog.snapshot");
+        Random random = new Random(7);
+        List<Long> ids = new ArrayList<>();
+        try (CatalogSnapshotWriter writer = new CatalogSnapshotWriter(file, 1L)) {
+            for (int i = 0; i < 2_000; i++) {
+                long id = random.nextLong(1, Long.MAX_VALUE);
+                ids.add(id);
+                writer.append(product(id, -random.nextLong(1, 1_000_000_000_000L), "Product " + i, null)
+                        .setStoreId(i % 3 == 0 ? "outlet" : "famme"));
+            }
+            writer.commit();
+        }
+
+        CatalogSnapshot snapshot = CatalogSnapshot.open(file);
+
+        for (Product product : snapshot.findPage(0, ids.size())) {
+            assertEquals(product.getId(), snapshot.findById(product.getId()).orElseThrow().getId());
+            assertEquals(product.getId(), snapshot.findByShopifyProductId(product.getStoreId(), product.getShopifyProductId())
+                    .orElseThrow().getId());
+        }
+    }
+
+    @Test
+    void rejectsCorruptedSnapshot() throws Exception {
+        Path file = tempDir.resolve("catalog.snapshot");
+        writeSnapshot(file, 1L);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{42}), Files.size(file) - 1);
+        }
+
+        IOException error = assertThrows(IOException.class, () -> CatalogSnapshot.open(file));
+        assertTrue(error.getMessage().contains("checksum"));
+    }
+
+    @Test
+    void adminWriteDropsTheSnapshotUntilItIsRebuilt() throws Exception {
+        ProductRepository productRepository = mock(ProductRepository.class);
+        CatalogSnapshotService service = new CatalogSnapshotService(productRepository,
+                new CatalogSnapshotProperties(true, tempDir.resolve("catalog.snapshot"), Duration.ofSeconds(5), Duration.ofSeconds(1)));
+        CountDownLatch rebuildReleased = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            Consumer<Product> action = invocation.getArgument(0);
+            action.accept(product(10L, 1_001L, "Seamless Leggings", null));
+            action.accept(product(20L, 2_002L, "Bralette", "Tops"));
+            return null;
+        }).doAnswer(invocation -> {
+            rebuildReleased.await();
+            Consumer<Product> action = invocation.getArgument(0);
+            action.accept(product(20L, 2_002L, "Bralette", "Tops"));
+            return null;
+        }).when(productRepository).forEachProduct(any());
+        try {
+            service.refresh(7L);
+            assertEquals(2, service.current().orElseThrow().count());
+
+            service.invalidate();
+            assertTrue(service.current().isEmpty());
+
+            rebuildReleased.countDown();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (service.current().isEmpty() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            CatalogSnapshot rebuilt = service.current().orElseThrow();
+            assertEquals(7L, rebuilt.generation());
+            assertTrue(rebuilt.findById(10L).isEmpty());
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    private static void writeSnapshot(Path file, long generation) throws IOException {
+        try (CatalogSnapshotWriter writer = new CatalogSnapshotWriter(file, generation)) {
+            writer.append(product(30L, 3_003L, "Sports Bra", "Tops"));
+            writer.append(product(10L, 1_001L, "Seamless Leggings", null)
+                    .setStoreId("outlet")
+                    .setCreatedAt(LocalDateTime.of(2025, 3, 1, 12, 30, 15, 123_456_789)));
+            writer.append(product(20L, 2_002L, "Bralette", "Tops"));
+            writer.append(product(40L, 2_002L, "Outlet Tee", "Tops").setStoreId("outlet"));
+            writer.commit();
+        }
+    }
+
+    private static Product product(long id, long shopifyProductId, String title, String productType) {
+        List<ProductVariant> variants = List.of(
+                new ProductVariant(shopifyProductId * 10, "S", 49_900L, "SKU-" + id, true),
+                new ProductVariant(shopifyProductId * 10 + 1, "M", 54_900L, null, false));
+        return new Product(shopifyProductId, title, title.toLowerCase().replace(' ', '-'), 49_900L, productType, variants)
+                .setId(id);
+    }
+}